@@ -1,40 +1,13 @@
 package com.jhonipereira.libraryapi;
 
-import com.jhonipereira.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
-
-import java.util.Arrays;
-import java.util.List;
 
 @SpringBootApplication
 @EnableScheduling
 public class LibraryApiApplication {
 
-	@Autowired
-	private EmailService emailService;
-
-	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
-	}
-
-//	@Bean
-//	public CommandLineRunner runner(){
-//		return args -> {
-//			MANUAL EMAIL TESTING
-//			List<String> emails = Arrays.asList("4d86e405ec-c703cb@inbox.mailtrap.io");
-//			emailService.sendMails("testing mail service", emails);
-//			System.out.println("emails sent");
-//		};
-//	}
-
 	public static void main(String[] args) {
 		SpringApplication.run(LibraryApiApplication.class, args);
 	}
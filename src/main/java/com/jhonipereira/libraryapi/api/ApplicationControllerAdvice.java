@@ -2,13 +2,17 @@ package com.jhonipereira.libraryapi.api;
 
 import com.jhonipereira.libraryapi.api.exception.ApiErrors;
 import com.jhonipereira.libraryapi.exception.BusinessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
 
 @RestControllerAdvice
@@ -22,12 +26,38 @@ public class ApplicationControllerAdvice {
         return new ApiErrors(bindingResult);
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors handleReactiveValidationExceptions(WebExchangeBindException e){
+        return new ApiErrors(e.getBindingResult());
+    }
+
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors handleBusinessException(BusinessException e){
         return new ApiErrors(e);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ApiErrors handleOptimisticLockingFailure(OptimisticLockingFailureException e){
+        return new ApiErrors("The resource was modified by another request.");
+    }
+
+    @ExceptionHandler(EmptyResultDataAccessException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ApiErrors handleEmptyResult(EmptyResultDataAccessException e){
+        // the row was deleted between reading it and changing it
+        return new ApiErrors("The resource does not exist.");
+    }
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiErrors handleCannotCreateTransaction(CannotCreateTransactionException e){
+        // no connection came free within the pool's connection timeout, or the database is down
+        return new ApiErrors("The service is busy, please try again later.");
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException e){
         return new ResponseEntity(new ApiErrors(e), e.getStatusCode());
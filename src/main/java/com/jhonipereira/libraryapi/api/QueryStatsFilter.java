@@ -0,0 +1,143 @@
+package com.jhonipereira.libraryapi.api;
+
+import com.jhonipereira.libraryapi.config.QueryStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Collects the {@link QueryStats} of each request and records them under the method and URI pattern, as
+ * {@code library.request.statements}, {@code library.request.jdbc} and {@code library.request.slow.statements}.
+ * With response headers on (dev and test) it also reports them in {@code X-Query-Count}, {@code X-Query-Time}
+ * (milliseconds) and {@code X-Query-Slow}; those are set when the response starts, so they cover the statements
+ * the handler ran before writing the body, which for a streamed export is none of them.
+ */
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT = "X-Query-Count";
+    public static final String QUERY_TIME = "X-Query-Time";
+    public static final String QUERY_SLOW = "X-Query-Slow";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean responseHeaders;
+
+    public QueryStatsFilter(MeterRegistry meterRegistry, boolean responseHeaders) {
+        this.meterRegistry = meterRegistry;
+        this.responseHeaders = responseHeaders;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        try {
+            if (responseHeaders) {
+                StatsHeaderResponse wrapped = new StatsHeaderResponse(response, stats);
+                filterChain.doFilter(request, wrapped);
+                wrapped.writeHeaders();
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            QueryStats.stop();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, QueryStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+        DistributionSummary.builder("library.request.statements")
+                .description("JDBC statements run by a request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("library.request.jdbc")
+                .description("Time a request spent in JDBC statements")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getElapsed());
+        if (stats.getSlowStatements() > 0) {
+            Counter.builder("library.request.slow.statements")
+                    .description("Statements slower than the slow statement threshold")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment(stats.getSlowStatements());
+        }
+    }
+
+    /**
+     * Adds the stats headers the first time the response is about to be committed, or after the handler when
+     * nothing committed it.
+     */
+    private static class StatsHeaderResponse extends HttpServletResponseWrapper {
+
+        private final QueryStats stats;
+        private boolean written;
+
+        StatsHeaderResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeaders() {
+            if (written || isCommitted()) {
+                return;
+            }
+            written = true;
+            setHeader(QUERY_COUNT, Integer.toString(stats.getStatements()));
+            setHeader(QUERY_TIME, String.format(Locale.ROOT, "%.3f", stats.getElapsed().toNanos() / 1e6));
+            setHeader(QUERY_SLOW, Integer.toString(stats.getSlowStatements()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
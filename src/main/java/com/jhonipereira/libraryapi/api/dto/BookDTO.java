@@ -1,5 +1,6 @@
 package com.jhonipereira.libraryapi.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.*;
 
@@ -8,6 +9,7 @@ import lombok.*;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonPropertyOrder({"id", "title", "author", "isbn"})
 public class BookDTO {
     private Long id;
 
@@ -0,0 +1,28 @@
+package com.jhonipereira.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    public enum Status { CREATED, DUPLICATE, INVALID }
+
+    /** position of the item in the imported payload, starting at 1 */
+    private long item;
+
+    private String isbn;
+
+    private Status status;
+
+    private Long id;
+
+    private List<String> errors;
+}
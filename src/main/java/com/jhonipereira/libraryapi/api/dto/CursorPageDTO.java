@@ -0,0 +1,21 @@
+package com.jhonipereira.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+
+    private int size;
+
+    /** opaque cursor for the following page, null on the last one */
+    private String next;
+}
@@ -0,0 +1,28 @@
+package com.jhonipereira.libraryapi.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"id", "isbn", "customer", "email", "loanDate", "returned"})
+public class LoanExportDTO {
+    private Long id;
+
+    private String isbn;
+
+    private String customer;
+
+    private String email;
+
+    private LocalDate loanDate;
+
+    private Boolean returned;
+}
@@ -21,6 +21,10 @@ public class ApiErrors {
         this.errors = Arrays.asList(e.getMessage());
     }
 
+    public ApiErrors(String error){
+        this.errors = Arrays.asList(error);
+    }
+
     public ApiErrors(ResponseStatusException e){
         this.errors = Arrays.asList(e.getReason());
     }
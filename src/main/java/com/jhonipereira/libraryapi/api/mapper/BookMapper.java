@@ -0,0 +1,20 @@
+package com.jhonipereira.libraryapi.api.mapper;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface BookMapper {
+
+    BookDTO toDto(Book book);
+
+    BookDTO toDto(BookSummary summary);
+
+    @Mapping(target = "loans", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    Book toEntity(BookDTO dto);
+}
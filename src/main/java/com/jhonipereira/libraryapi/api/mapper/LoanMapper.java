@@ -0,0 +1,28 @@
+package com.jhonipereira.libraryapi.api.mapper;
+
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanExportDTO;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring", uses = BookMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR)
+public interface LoanMapper {
+
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "email", source = "customerEmail")
+    LoanDTO toDto(Loan loan);
+
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "email", source = "customerEmail")
+    LoanExportDTO toExport(Loan loan);
+
+    @Mapping(target = "customerEmail", source = "email")
+    @Mapping(target = "book", ignore = true)
+    @Mapping(target = "loanDate", ignore = true)
+    @Mapping(target = "returned", ignore = true)
+    @Mapping(target = "openBook", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Loan toEntity(LoanDTO dto);
+}
@@ -0,0 +1,24 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the blocking JPA services off the event loop, on the bounded elastic pool,
+ * so the reactive controllers share the business rules of the servlet ones.
+ */
+final class Blocking {
+
+    private Blocking(){
+    }
+
+    static <T> Mono<T> call(Callable<T> callable){
+        return Mono.fromCallable(callable).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    static Mono<Void> run(Runnable runnable){
+        return Mono.<Void>fromRunnable(runnable).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,84 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads the books of a batch request one at a time, so the payload is never held in memory.
+ */
+final class BookBatchReader {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private BookBatchReader() {
+    }
+
+    static Iterator<BookDTO> json(ObjectMapper objectMapper, InputStream body) {
+        try {
+            JsonParser parser = objectMapper.getFactory().createParser(body);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw malformed("a JSON array of books is expected");
+            }
+            parser.nextToken();
+            return guard(objectMapper.readerFor(BookDTO.class).readValues(parser));
+        } catch (IOException e) {
+            throw malformed(e.getMessage());
+        }
+    }
+
+    static Iterator<BookDTO> ndjson(ObjectMapper objectMapper, InputStream body) {
+        try {
+            return guard(objectMapper.readerFor(BookDTO.class).readValues(body));
+        } catch (IOException e) {
+            throw malformed(e.getMessage());
+        }
+    }
+
+    static Iterator<BookDTO> csv(InputStream body) {
+        try {
+            return guard(CSV_MAPPER.readerFor(BookDTO.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(body));
+        } catch (IOException e) {
+            throw malformed(e.getMessage());
+        }
+    }
+
+    private static Iterator<BookDTO> guard(MappingIterator<BookDTO> values) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNext();
+                } catch (RuntimeJsonMappingException e) {
+                    throw malformed(e.getMessage());
+                }
+            }
+
+            @Override
+            public BookDTO next() {
+                try {
+                    return values.next();
+                } catch (RuntimeJsonMappingException e) {
+                    throw malformed(e.getMessage());
+                }
+            }
+        };
+    }
+
+    private static ResponseStatusException malformed(String reason) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "malformed batch: " + reason);
+    }
+}
@@ -1,45 +1,72 @@
 package com.jhonipereira.libraryapi.api.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+import com.jhonipereira.libraryapi.api.dto.CursorPageDTO;
 import com.jhonipereira.libraryapi.api.dto.LoanDTO;
 import com.jhonipereira.libraryapi.api.exception.ApiErrors;
+import com.jhonipereira.libraryapi.api.mapper.BookMapper;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapper;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookImportService;
+import com.jhonipereira.libraryapi.service.BookSearchService;
 import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.ExportService;
 import com.jhonipereira.libraryapi.service.LoanService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/books")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BookController {
 
     private final BookService service;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
     private final LoanService loanService;
+    private final BookImportService importService;
+    private final ExportService exportService;
+    private final BookSearchService searchService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${application.http.books.max-age:0s}")
+    private Duration maxAge = Duration.ZERO;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public BookDTO create(@RequestBody @Valid BookDTO dto){
-        Book entity = modelMapper.map(dto, Book.class);
+        Book entity = bookMapper.toEntity(dto);
 
         service.save(entity);
 
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDto(entity);
 
 //        return BookDTO
 //                .builder()
@@ -50,10 +77,37 @@ public class BookController {
 //                .build();
     }
 
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BookImportResultDTO> createBatch(InputStream body){
+        return importService.importBooks(BookBatchReader.json(objectMapper, body));
+    }
+
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<BookImportResultDTO> createBatchNdjson(InputStream body){
+        return importService.importBooks(BookBatchReader.ndjson(objectMapper, body));
+    }
+
+    @PostMapping(value = "batch", consumes = "text/csv")
+    public List<BookImportResultDTO> createBatchCsv(InputStream body){
+        return importService.importBooks(BookBatchReader.csv(body));
+    }
+
+    @GetMapping("export")
+    public void export(@RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+                       HttpServletResponse response) throws IOException {
+        try (ExportWriter<BookDTO> writer = ExportWriter.open(format, BookDTO.class, objectMapper, response, "books")) {
+            exportService.exportBooks(book -> writer.write(bookMapper.toDto(book)));
+        }
+    }
+
     @GetMapping("{id}")
-    public BookDTO get(@PathVariable Long id){
-        return service.getById(id).map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, WebRequest request){
+        Book book = service.getById(id).orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        // sets ETag and Last-Modified itself, and answers 304 before the book is mapped
+        if (request.checkNotModified(ETags.of(book.getVersion()), ETags.epochMillis(book.getLastModified()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.cacheControl(maxAge)).build();
+        }
+        return ResponseEntity.ok().cacheControl(ETags.cacheControl(maxAge)).body(bookMapper.toDto(book));
     }
 
     @DeleteMapping("{id}")
@@ -64,29 +118,49 @@ public class BookController {
     }
 
     @PutMapping("{id}")
-    public BookDTO update(@PathVariable Long id, BookDTO dto){
-//        Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-//        book.setAuthor(dto.getAuthor());
-//        book.setTitle(dto.getTitle());
-//        book = service.update(book);
-//        return modelMapper.map(book, BookDTO.class);
-        return service.getById(id).map( book -> {
-
-            book.setAuthor(dto.getAuthor());
-            book.setTitle(dto.getTitle());
-            book = service.update(book);
-            return modelMapper.map(book, BookDTO.class);
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(
+                ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED));
+
+        // the If-Match version goes along with the change, so the update fails instead of overwriting a newer one;
+        // without it the service applies the change to the current row, never to the possibly older cached copy
+        Book changed = Book.builder().id(book.getId()).isbn(book.getIsbn())
+                .title(dto.getTitle()).author(dto.getAuthor())
+                .version(expectedVersion)
+                .build();
+        Book updated = service.update(changed);
+        return ETags.ok(updated.getVersion()).body(bookMapper.toDto(updated));
+    }
 
-        }).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    @GetMapping
+    public ResponseEntity<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest, WebRequest request){
+        Book filter = bookMapper.toEntity(dto);
+        Page<BookSummary> result = service.find(filter, pageRequest);
+        if (request.checkNotModified(ETags.of(result))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.cacheControl(maxAge)).build();
+        }
+        List<BookDTO> list = result.getContent().stream()
+                .map(bookMapper::toDto).collect(Collectors.toList());
+        return ResponseEntity.ok().cacheControl(ETags.cacheControl(maxAge))
+                .body(new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements()));
+    }
 
+    @GetMapping(params = "after")
+    public CursorPageDTO<BookDTO> findAfter(BookDTO dto,
+                                            @RequestParam("after") String after,
+                                            @RequestParam(value = "size", defaultValue = "20") int size){
+        Book filter = bookMapper.toEntity(dto);
+        List<BookSummary> result = service.findAfter(filter, KeysetCursor.decode(after), KeysetCursor.fetchSize(size));
+        return KeysetCursor.page(result, size, BookSummary::id, bookMapper::toDto);
     }
 
-    @GetMapping
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
-        Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(filter, pageRequest);
+    @GetMapping("search")
+    public Page<BookDTO> search(@RequestParam("q") String q, Pageable pageRequest){
+        Page<BookSummary> result = searchService.search(q, pageRequest);
         List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class)).collect(Collectors.toList());
+                .map(bookMapper::toDto).collect(Collectors.toList());
         return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
     }
 
@@ -96,13 +170,8 @@ public class BookController {
         Page<Loan> result = loanService.getLoansByBook(book, pageable);
 
         List<LoanDTO> list = result.getContent().stream()
-                .map(entity -> {
-                    Book loanBook = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
+                .map(loanMapper::toDto)
+                .collect(Collectors.toList());
         return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
     }
 }
@@ -0,0 +1,94 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Entity tags hold the row version, so a client can make an update conditional on the state it read
+ * by sending the tag back in {@code If-Match}.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version){
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * A page has no version of its own, so its tag digests what the page shows: position, total and
+     * every row in order. It is computed before mapping, so a 304 skips the DTOs and the serialization.
+     */
+    static String of(Page<BookSummary> page){
+        MessageDigest digest = md5();
+        update(digest, page.getNumber() + ":" + page.getSize() + ":" + page.getTotalElements());
+        for (BookSummary book : page) {
+            update(digest, book.id() + ":" + book.title() + ":" + book.author() + ":" + book.isbn());
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+    }
+
+    static long epochMillis(Instant instant){
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
+
+    /**
+     * With no max-age clients revalidate every time, which the tags make cheap; a max-age lets them
+     * skip the request altogether for that long.
+     */
+    static CacheControl cacheControl(Duration maxAge){
+        return maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge).mustRevalidate();
+    }
+
+    static ResponseEntity.BodyBuilder ok(Long version){
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return version == null ? response : response.eTag(of(version));
+    }
+
+    /**
+     * The version an {@code If-Match} header asks for, null when the header is absent or {@code *}.
+     * Weak or foreign tags can never match, so they fail the precondition.
+     */
+    static Long expectedVersion(String ifMatch){
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.contains(",")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must hold a single entity tag");
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "entity tag does not match");
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "entity tag does not match");
+        }
+    }
+
+    private static MessageDigest md5(){
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value){
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes export rows straight to the response as NDJSON or CSV, one row at a time.
+ */
+final class ExportWriter<T> implements AutoCloseable {
+
+    static final String NDJSON = "ndjson";
+    static final String CSV = "csv";
+
+    private static final CsvMapper CSV_MAPPER = (CsvMapper) new CsvMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final OutputStream out;
+    private final SequenceWriter writer;
+    private final boolean ndjson;
+    private long rows;
+
+    private ExportWriter(OutputStream out, SequenceWriter writer, boolean ndjson) {
+        this.out = out;
+        this.writer = writer;
+        this.ndjson = ndjson;
+    }
+
+    static <T> ExportWriter<T> open(String format, Class<T> type, ObjectMapper objectMapper,
+                                    HttpServletResponse response, String fileName) throws IOException {
+        boolean ndjson = NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !CSV.equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition",
+                "attachment; filename=\"" + fileName + (ndjson ? ".ndjson" : ".csv") + "\"");
+
+        OutputStream out = new BufferedOutputStream(response.getOutputStream(), 64 * 1024);
+        SequenceWriter writer = ndjson
+                ? objectMapper.writerFor(type).withRootValueSeparator("\n").writeValues(out)
+                : CSV_MAPPER.writerFor(type).with(CSV_MAPPER.schemaFor(type).withHeader()).writeValues(out);
+        return new ExportWriter<>(out, writer, ndjson);
+    }
+
+    void write(T row) {
+        try {
+            writer.write(row);
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        if (ndjson && rows > 0) {
+            out.write('\n');
+        }
+        writer.close();
+    }
+}
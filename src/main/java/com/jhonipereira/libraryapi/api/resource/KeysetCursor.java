@@ -0,0 +1,58 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.dto.CursorPageDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes the last seen id of an id-ordered listing as an opaque cursor.
+ * Listings fetch one row more than requested to know whether a next page exists,
+ * so no count query is needed.
+ */
+final class KeysetCursor {
+
+    static final int MAX_SIZE = 2000;
+
+    private KeysetCursor() {
+    }
+
+    static Long decode(String cursor){
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor");
+        }
+    }
+
+    static String encode(Long id){
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int fetchSize(int size){
+        if (size < 1 || size > MAX_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_SIZE);
+        }
+        return size + 1;
+    }
+
+    static <E, T> CursorPageDTO<T> page(List<E> rows, int size, Function<E, Long> idOf, Function<E, T> mapper){
+        boolean hasNext = rows.size() > size;
+        List<E> content = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? encode(idOf.apply(content.get(content.size() - 1))) : null;
+
+        return CursorPageDTO.<T>builder()
+                .content(content.stream().map(mapper).collect(Collectors.toList()))
+                .size(size)
+                .next(next)
+                .build();
+    }
+}
@@ -1,23 +1,31 @@
 package com.jhonipereira.libraryapi.api.resource;
 
-import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jhonipereira.libraryapi.api.dto.CursorPageDTO;
 import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanExportDTO;
 import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
 import com.jhonipereira.libraryapi.api.dto.ReturnedLoanDTO;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapper;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
 import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.ExportService;
 import com.jhonipereira.libraryapi.service.LoanService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -26,11 +34,14 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/loans")
 @RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class LoanController {
 
     private final LoanService service;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -38,18 +49,27 @@ public class LoanController {
 //        Book book = bookService.getBookByIsbn(dto.getIsbn()).get();
         Book book = bookService.getBookByIsbn(dto.getIsbn())
                 .orElseThrow( () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "book not found for informed isbn"));
-        Loan entity = Loan.builder().book(book).customer(dto.getCustomer()).loanDate(LocalDate.now()).build();
+        Loan entity = Loan.builder().book(book).customer(dto.getCustomer()).customerEmail(dto.getEmail())
+                .loanDate(LocalDate.now()).build();
 
         Loan saved = service.save(entity);
         return saved.getId();
     }
 
-    @PatchMapping("{id}")
-    public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto){
-        Loan loan = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        loan.setReturned(dto.getReturned());
+    @GetMapping("{id}")
+    public ResponseEntity<LoanDTO> get(@PathVariable Long id){
+        return service.getById(id).map(loan -> ETags.ok(loan.getVersion()).body(loanMapper.toDto(loan)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
 
-        service.update(loan);
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        if (!service.markReturned(id, dto.getReturned(), expectedVersion)) {
+            throw new ResponseStatusException(ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED);
+        }
+        return ETags.ok(expectedVersion == null ? null : expectedVersion + 1).build();
     }
 
     @GetMapping
@@ -57,19 +77,26 @@ public class LoanController {
         Page<Loan> result = service.find(dto, pageRequest);
         List<LoanDTO> loans = result
                 .getContent()
-                .stream().map(
-                        entity ->
-                        {
-                            //first transform book to book dto
-                            Book book = entity.getBook();
-                            BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                            LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                            loanDTO.setBook(bookDTO);
-
-                            return loanDTO;
-                        })
+                .stream()
+                .map(loanMapper::toDto)
                 .collect(Collectors.toList());
         return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
     }
 
+    @GetMapping(params = "after")
+    public CursorPageDTO<LoanDTO> findAfter(LoanFilterDTO dto,
+                                            @RequestParam("after") String after,
+                                            @RequestParam(value = "size", defaultValue = "20") int size){
+        List<Loan> result = service.findAfter(dto, KeysetCursor.decode(after), KeysetCursor.fetchSize(size));
+        return KeysetCursor.page(result, size, Loan::getId, loanMapper::toDto);
+    }
+
+    @GetMapping("export")
+    public void export(@RequestParam(value = "format", defaultValue = ExportWriter.NDJSON) String format,
+                       HttpServletResponse response) throws IOException {
+        try (ExportWriter<LoanExportDTO> writer = ExportWriter.open(format, LoanExportDTO.class, objectMapper, response, "loans")) {
+            exportService.exportLoans(loan -> writer.write(loanMapper.toExport(loan)));
+        }
+    }
+
 }
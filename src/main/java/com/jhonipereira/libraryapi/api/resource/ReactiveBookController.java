@@ -0,0 +1,146 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.CursorPageDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapper;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapper;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.LoanService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link BookController}, served when the application runs as a reactive web application.
+ * Batch imports and exports stay on the servlet stack.
+ */
+@RestController
+@RequestMapping("/api/books")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveBookController {
+
+    private final BookService service;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
+    private final LoanService loanService;
+    private final BookSearchService searchService;
+
+    @Value("${application.http.books.max-age:0s}")
+    private Duration maxAge = Duration.ZERO;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> create(@RequestBody @Valid BookDTO dto){
+        return Blocking.call(() -> bookMapper.toDto(service.save(bookMapper.toEntity(dto))));
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<BookDTO>> get(@PathVariable Long id, ServerWebExchange exchange){
+        return book(id).map(book -> {
+            Instant lastModified = book.getLastModified();
+            if (exchange.checkNotModified(ETags.of(book.getVersion()), lastModified == null ? Instant.MIN : lastModified)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.cacheControl(maxAge)).build();
+            }
+            return ResponseEntity.ok().cacheControl(ETags.cacheControl(maxAge)).body(bookMapper.toDto(book));
+        });
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> delete(@PathVariable Long id){
+        return book(id).flatMap(book -> Blocking.run(() -> service.delete(book)));
+    }
+
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<BookDTO>> update(@PathVariable Long id, @RequestBody BookDTO dto,
+                                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        return Blocking.call(() -> service.getById(id))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                        ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED)))
+                .flatMap(book -> Blocking.call(() -> {
+                    Book changed = Book.builder().id(book.getId()).isbn(book.getIsbn())
+                            .title(dto.getTitle()).author(dto.getAuthor())
+                            .version(expectedVersion)
+                            .build();
+                    Book updated = service.update(changed);
+                    return ETags.ok(updated.getVersion()).body(bookMapper.toDto(updated));
+                }));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Page<BookDTO>>> find(BookDTO dto, Pageable pageRequest, ServerWebExchange exchange){
+        Book filter = bookMapper.toEntity(dto);
+        return Blocking.call(() -> service.find(filter, pageRequest)).map(result -> {
+            if (exchange.checkNotModified(ETags.of(result))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.cacheControl(maxAge)).build();
+            }
+            List<BookDTO> list = result.getContent().stream()
+                    .map(bookMapper::toDto).collect(Collectors.toList());
+            return ResponseEntity.ok().cacheControl(ETags.cacheControl(maxAge))
+                    .body(new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements()));
+        });
+    }
+
+    @GetMapping(params = "after")
+    public Mono<CursorPageDTO<BookDTO>> findAfter(BookDTO dto,
+                                                  @RequestParam("after") String after,
+                                                  @RequestParam(value = "size", defaultValue = "20") int size){
+        Book filter = bookMapper.toEntity(dto);
+        Long afterId = KeysetCursor.decode(after);
+        return Blocking.call(() -> {
+            List<BookSummary> result = service.findAfter(filter, afterId, KeysetCursor.fetchSize(size));
+            return KeysetCursor.page(result, size, BookSummary::id, bookMapper::toDto);
+        });
+    }
+
+    @GetMapping("search")
+    public Mono<Page<BookDTO>> search(@RequestParam("q") String q, Pageable pageRequest){
+        return Blocking.call(() -> {
+            Page<BookSummary> result = searchService.search(q, pageRequest);
+            List<BookDTO> list = result.getContent().stream()
+                    .map(bookMapper::toDto).collect(Collectors.toList());
+            return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        });
+    }
+
+    @GetMapping("{id}/loans")
+    public Mono<Page<LoanDTO>> loansByBook(@PathVariable Long id, Pageable pageable){
+        return book(id).flatMap(book -> Blocking.call(() -> {
+            Page<Loan> result = loanService.getLoansByBook(book, pageable);
+            List<LoanDTO> list = result.getContent().stream()
+                    .map(loanMapper::toDto)
+                    .collect(Collectors.toList());
+            return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+        }));
+    }
+
+    private Mono<Book> book(Long id){
+        return Blocking.call(() -> service.getById(id))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+}
@@ -0,0 +1,94 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.dto.CursorPageDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
+import com.jhonipereira.libraryapi.api.dto.ReturnedLoanDTO;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapper;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.LoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link LoanController}, served when the application runs as a reactive web application.
+ */
+@RestController
+@RequestMapping("/api/loans")
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveLoanController {
+
+    private final LoanService service;
+    private final BookService bookService;
+    private final LoanMapper loanMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody LoanDTO dto){
+        return Blocking.call(() -> bookService.getBookByIsbn(dto.getIsbn()))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "book not found for informed isbn")))
+                .flatMap(book -> Blocking.call(() -> {
+                    Loan entity = Loan.builder().book(book).customer(dto.getCustomer()).customerEmail(dto.getEmail())
+                            .loanDate(LocalDate.now()).build();
+                    return service.save(entity).getId();
+                }));
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<LoanDTO>> get(@PathVariable Long id){
+        return Blocking.call(() -> service.getById(id).map(loan -> ETags.ok(loan.getVersion()).body(loanMapper.toDto(loan))))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @PatchMapping("{id}")
+    public Mono<ResponseEntity<Void>> returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ETags.expectedVersion(ifMatch);
+        return Blocking.call(() -> service.markReturned(id, dto.getReturned(), expectedVersion))
+                .map(returned -> {
+                    if (!returned) {
+                        throw new ResponseStatusException(ifMatch == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED);
+                    }
+                    return ETags.ok(expectedVersion == null ? null : expectedVersion + 1).build();
+                });
+    }
+
+    @GetMapping
+    public Mono<Page<LoanDTO>> find(LoanFilterDTO dto, Pageable pageRequest){
+        return Blocking.call(() -> {
+            Page<Loan> result = service.find(dto, pageRequest);
+            List<LoanDTO> loans = result.getContent().stream()
+                    .map(loanMapper::toDto)
+                    .collect(Collectors.toList());
+            return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
+        });
+    }
+
+    @GetMapping(params = "after")
+    public Mono<CursorPageDTO<LoanDTO>> findAfter(LoanFilterDTO dto,
+                                                  @RequestParam("after") String after,
+                                                  @RequestParam(value = "size", defaultValue = "20") int size){
+        Long afterId = KeysetCursor.decode(after);
+        return Blocking.call(() -> {
+            List<Loan> result = service.findAfter(dto, afterId, KeysetCursor.fetchSize(size));
+            return KeysetCursor.page(result, size, Loan::getId, loanMapper::toDto);
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code POST /actuator/searchindex} rebuilds the book search index from the database.
+ * Index lag and pending changes are published as the {@code search.index.*} metrics.
+ */
+@Component
+@Endpoint(id = "searchindex")
+@RequiredArgsConstructor
+public class SearchIndexEndpoint {
+
+    private final BookSearchService searchService;
+
+    @WriteOperation
+    public Map<String, Long> rebuild() {
+        long start = System.nanoTime();
+        long indexed = searchService.rebuild();
+        return Map.of("indexed", indexed, "tookMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
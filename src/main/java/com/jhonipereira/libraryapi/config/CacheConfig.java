@@ -0,0 +1,47 @@
+package com.jhonipereira.libraryapi.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String BOOKS = "books";
+    public static final String BOOKS_BY_ISBN = "booksByIsbn";
+
+    /**
+     * Puts and evictions made inside a transaction reach the caches only once it commits, so a read running
+     * meanwhile cannot cache the old row again after the eviction; outside a transaction they apply at once.
+     * Synchronized loads hold a {@link KeyLockingCache} lock rather than a monitor.
+     */
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManagerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof CacheManager cacheManager) || bean instanceof TransactionAwareCacheManagerProxy) {
+                    return bean;
+                }
+                return new TransactionAwareCacheManagerProxy(new KeyLockingCacheManager(cacheManager));
+            }
+        };
+    }
+
+    /**
+     * Keeps the Caffeine statistics of the caches wrapped by {@link KeyLockingCache} in the cache metrics.
+     */
+    @Bean
+    public CacheMeterBinderProvider<KeyLockingCache> keyLockingCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+        return (cache, tags) -> cache.getTarget() instanceof CaffeineCache target
+                ? caffeine.getMeterBinder(target, tags) : null;
+    }
+}
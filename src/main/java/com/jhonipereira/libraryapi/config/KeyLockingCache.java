@@ -0,0 +1,135 @@
+package com.jhonipereira.libraryapi.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the loads of {@code @Cacheable(sync = true)} under a lock on the key, so concurrent misses load once and an
+ * eviction arriving meanwhile waits for the load and then drops what it loaded.
+ * <p>
+ * Caffeine gives the same guarantees by loading inside {@code ConcurrentHashMap.compute}, but that holds a monitor
+ * across the query, which pins a virtual thread to its carrier while it waits for a connection or a result; the
+ * waiters on a {@link ReentrantLock} park instead.
+ */
+public class KeyLockingCache implements Cache {
+
+    private final Cache target;
+    private final ReentrantLock[] locks;
+
+    public KeyLockingCache(Cache target, ReentrantLock[] locks) {
+        this.target = target;
+        this.locks = locks;
+    }
+
+    public Cache getTarget() {
+        return target;
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return target.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return target.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return target.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = target.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            cached = target.get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            target.put(key, value);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            target.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return target.putIfAbsent(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            target.evict(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return target.evictIfPresent(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        target.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return target.invalidate();
+    }
+
+    private ReentrantLock lockFor(Object key) {
+        int hash = 31 * getName().hashCode() + key.hashCode();
+        return locks[Math.floorMod(hash ^ (hash >>> 16), locks.length)];
+    }
+}
@@ -0,0 +1,37 @@
+package com.jhonipereira.libraryapi.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out the caches of the target manager as {@link KeyLockingCache}s. They share one set of lock stripes, so
+ * every lookup of a cache agrees on the lock of a key.
+ */
+public class KeyLockingCacheManager implements CacheManager {
+
+    private static final int STRIPES = 256;
+
+    private final CacheManager target;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public KeyLockingCacheManager(CacheManager target) {
+        this.target = target;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = target.getCache(name);
+        return cache == null ? null : new KeyLockingCache(cache, locks);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+}
@@ -0,0 +1,23 @@
+package com.jhonipereira.libraryapi.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Controllers ({@code http.server.requests}) and repository queries ({@code spring.data.repository.invocations})
+ * are timed by Spring Boot; this times the classes annotated with {@code @Timed}. Together with the SMTP
+ * timer of the {@link com.jhonipereira.libraryapi.service.impl.MailDispatcher} a slow request can be split into
+ * mapping, service, database and mail time.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "library.service";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.jhonipereira.libraryapi.config;
+
+import java.time.Duration;
+
+/**
+ * The JDBC statements run on the current thread since {@link #start()}: how many, how long they took together
+ * and how many went past the slow threshold. A batch counts as one statement, as it is one round trip.
+ * <p>
+ * The servlet stack serves a request on one thread, so a filter can scope the stats to it; statements run on
+ * other threads (reactive handlers, scheduled jobs, the outbox relay) are not collected.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long elapsedNanos;
+    private int slowStatements;
+
+    private QueryStats() {
+    }
+
+    public static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    static void record(long elapsedNanos, boolean slow) {
+        QueryStats stats = CURRENT.get();
+        if (stats == null) {
+            return;
+        }
+        stats.statements++;
+        stats.elapsedNanos += elapsedNanos;
+        if (slow) {
+            stats.slowStatements++;
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public int getSlowStatements() {
+        return slowStatements;
+    }
+}
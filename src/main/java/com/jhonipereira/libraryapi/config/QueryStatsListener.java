@@ -0,0 +1,48 @@
+package com.jhonipereira.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Times every statement run through the proxied {@code DataSource}, adds it to the {@link QueryStats} of the
+ * thread and logs the ones slower than the threshold with their SQL.
+ */
+@Slf4j
+class QueryStatsListener implements QueryExecutionListener {
+
+    private static final String START = QueryStatsListener.class.getName() + ".start";
+
+    private final long slowThresholdNanos;
+
+    QueryStatsListener(Duration slowThreshold) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        boolean slow = elapsed > slowThresholdNanos;
+        QueryStats.record(elapsed, slow);
+        if (slow) {
+            log.warn("Slow statement took {} ms{}: {}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    execInfo.isBatch() ? " for a batch of " + execInfo.getBatchSize() : "",
+                    queryInfoList.stream().map(QueryInfo::getQuery).distinct().collect(Collectors.joining("; ")));
+        }
+    }
+}
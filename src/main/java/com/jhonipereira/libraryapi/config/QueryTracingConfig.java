@@ -0,0 +1,53 @@
+package com.jhonipereira.libraryapi.config;
+
+import com.jhonipereira.libraryapi.api.QueryStatsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Puts a datasource-proxy in front of the application {@link DataSource} so every statement is counted and timed
+ * into the {@link QueryStats} of its thread, and on the servlet stack scopes those stats to each request.
+ */
+@Configuration
+public class QueryTracingConfig {
+
+    @Bean
+    public static BeanPostProcessor queryTracingDataSourcePostProcessor(
+            @Value("${application.jdbc.tracing.slow-threshold:500ms}") Duration slowThreshold) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new QueryStatsListener(slowThreshold))
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<QueryStatsFilter> queryStatsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${application.jdbc.tracing.response-headers:false}") boolean responseHeaders) {
+        FilterRegistrationBean<QueryStatsFilter> registration =
+                new FilterRegistrationBean<>(new QueryStatsFilter(meterRegistry, responseHeaders));
+        // first in the chain, so it sees every statement of the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
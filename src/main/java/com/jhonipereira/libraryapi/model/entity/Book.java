@@ -1,11 +1,14 @@
 package com.jhonipereira.libraryapi.model.entity;
 
+import com.jhonipereira.libraryapi.service.impl.BookIndexListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -13,16 +16,24 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "book")
+@EntityListeners(BookIndexListener.class)
+@Table(name = "book", uniqueConstraints = @UniqueConstraint(name = "uk_book_isbn", columnNames = "isbn"))
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     private String title;
     private String author;
     private String isbn;
 
+    @Version
+    private Long version;
+
+    @UpdateTimestamp
+    private Instant lastModified;
+
     @OneToMany(mappedBy = "book") //property name on the Loan class
     private List<Loan> loans;
 
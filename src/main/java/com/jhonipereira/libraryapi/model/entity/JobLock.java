@@ -0,0 +1,30 @@
+package com.jhonipereira.libraryapi.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "job_lock")
+public class JobLock {
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column
+    private String owner;
+
+    @Column
+    private LocalDateTime lockedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedUntil;
+}
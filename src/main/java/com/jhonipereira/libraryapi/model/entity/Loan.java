@@ -5,7 +5,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.context.annotation.EnableMBeanExport;
 
 import java.time.LocalDate;
 
@@ -14,6 +13,11 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_loan_open_book", columnNames = "open_book"),
+        indexes = {
+        @Index(name = "idx_loan_book_returned", columnList = "id_book, returned"),
+        @Index(name = "idx_loan_date_returned", columnList = "loanDate, returned")
+})
 public class Loan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,8 +29,8 @@ public class Loan {
     @Column(name = "customer_email")
     private String customerEmail;
 
-    @JoinColumn(name = "id_book")
-    @ManyToOne
+    @JoinColumn(name = "id_book", foreignKey = @ForeignKey(name = "fk_loan_book"))
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     @Column
@@ -35,4 +39,16 @@ public class Loan {
     @Column
     private Boolean returned;
 
+    @Column(name = "open_book")
+    private Long openBook;
+
+    @Version
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    void markOpenBook(){
+        openBook = Boolean.TRUE.equals(returned) || book == null ? null : book.getId();
+    }
+
 }
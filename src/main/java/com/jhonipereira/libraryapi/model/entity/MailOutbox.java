@@ -0,0 +1,57 @@
+package com.jhonipereira.libraryapi.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "mail_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_mail_outbox_key", columnNames = "idempotency_key"),
+        indexes = @Index(name = "idx_mail_outbox_pending", columnList = "sentAt, failedAt, nextAttemptAt, id"))
+public class MailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column
+    private String subject;
+
+    @Column(length = 2000)
+    private String body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime sentAt;
+
+    @Column
+    private LocalDateTime failedAt;
+
+    @Column
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @PrePersist
+    void markCreated() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -1,13 +1,40 @@
 package com.jhonipereira.libraryapi.model.repository;
 
 import com.jhonipereira.libraryapi.model.entity.Book;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
 
+    @Query( value = " select b.isbn from Book b where b.isbn in :isbns ")
+    Set<String> findIsbnsIn(@Param("isbns") Collection<String> isbns);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query( value = " select b from Book b order by b.id ")
+    Stream<Book> streamAll();
+
+    @Query( value = " select coalesce(max(b.id), 0) from Book b ")
+    long findMaxId();
+
+    @Query( value = " select new com.jhonipereira.libraryapi.model.repository.BookSummary(b.id, b.title, b.author, b.isbn) " +
+            " from Book b where b.id > :after and b.id <= :upTo ")
+    List<BookSummary> findSummariesBetween(@Param("after") Long after, @Param("upTo") Long upTo);
 }
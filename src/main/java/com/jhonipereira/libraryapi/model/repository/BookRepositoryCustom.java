@@ -0,0 +1,21 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Pages book summaries whose title, author and isbn contain the given values, ignoring case.
+     * Null values are left out of the query.
+     */
+    Page<BookSummary> findSummaries(String title, String author, String isbn, Pageable pageable);
+
+    /**
+     * Seeks the first page of book summaries with an id greater than {@code after}, ordered by id, filtered
+     * like {@link #findSummaries}.
+     */
+    List<BookSummary> findAfter(Long after, String title, String author, String isbn, Pageable pageable);
+}
@@ -0,0 +1,83 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<BookSummary> findSummaries(String title, String author, String isbn, Pageable pageable) {
+        // only the filters given become predicates, so an unfiltered count stays a plain count(*)
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookSummary> select = cb.createQuery(BookSummary.class);
+        Root<Book> book = select.from(Book.class);
+        select.select(cb.construct(BookSummary.class, book.get("id"), book.get("title"), book.get("author"), book.get("isbn")))
+                .where(filter(cb, book, title, author, isbn))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), book, cb));
+
+        TypedQuery<BookSummary> query = entityManager.createQuery(select);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Book> counted = count.from(Book.class);
+            count.select(cb.count(counted)).where(filter(cb, counted, title, author, isbn));
+            return entityManager.createQuery(count).getSingleResult();
+        });
+    }
+
+    @Override
+    public List<BookSummary> findAfter(Long after, String title, String author, String isbn, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<BookSummary> select = cb.createQuery(BookSummary.class);
+        Root<Book> book = select.from(Book.class);
+        Predicate[] predicates = filter(cb, book, title, author, isbn);
+        Predicate[] seek = Arrays.copyOf(predicates, predicates.length + 1);
+        seek[predicates.length] = cb.greaterThan(book.get("id"), after);
+        select.select(cb.construct(BookSummary.class, book.get("id"), book.get("title"), book.get("author"), book.get("isbn")))
+                .where(seek)
+                .orderBy(cb.asc(book.get("id")));
+
+        return entityManager.createQuery(select)
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    private static Predicate[] filter(CriteriaBuilder cb, Root<Book> book, String title, String author, String isbn) {
+        List<Predicate> predicates = new ArrayList<>();
+        addContaining(predicates, cb, book, "title", title);
+        addContaining(predicates, cb, book, "author", author);
+        addContaining(predicates, cb, book, "isbn", isbn);
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private static void addContaining(List<Predicate> predicates, CriteriaBuilder cb, Root<Book> book, String attribute, String value) {
+        if (value != null) {
+            String pattern = "%" + EscapeCharacter.DEFAULT.escape(value.toLowerCase()) + "%";
+            predicates.add(cb.like(cb.lower(book.get(attribute)), pattern, EscapeCharacter.DEFAULT.getEscapeCharacter()));
+        }
+    }
+}
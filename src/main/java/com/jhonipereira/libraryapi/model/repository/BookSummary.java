@@ -0,0 +1,8 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+/**
+ * Read-only view of a book for listings. Built straight from the selected columns,
+ * so it is never attached to the persistence context nor dirty checked.
+ */
+public record BookSummary(Long id, String title, String author, String isbn) {
+}
@@ -0,0 +1,12 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+/**
+ * Read-only view of an overdue loan holding just what the notification job needs.
+ */
+public interface DueLoan {
+    Long getId();
+
+    String getCustomer();
+
+    String getCustomerEmail();
+}
@@ -0,0 +1,42 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+import com.jhonipereira.libraryapi.model.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Takes over a lock whose lease has run out; returns 0 while another owner still holds it.
+     */
+    @Transactional
+    @Modifying
+    @Query( value = " update JobLock l set l.owner = :owner, l.lockedAt = :now, l.lockedUntil = :until " +
+            " where l.name = :name and l.lockedUntil <= :now ")
+    int lease(@Param("name") String name,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    /**
+     * Creates the lock row the first time a job runs; the primary key rejects a concurrent second insert.
+     */
+    @Transactional
+    @Modifying
+    @Query( value = " insert into job_lock (name, owner, locked_at, locked_until) values (:name, :owner, :now, :until) ",
+            nativeQuery = true)
+    int insert(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("now") LocalDateTime now,
+               @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("update JobLock l set l.lockedUntil = :until where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("until") LocalDateTime until);
+}
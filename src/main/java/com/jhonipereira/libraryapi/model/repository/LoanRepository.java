@@ -2,28 +2,82 @@ package com.jhonipereira.libraryapi.model.repository;
 
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = "book")
+    Optional<Loan> findById(Long id);
+
+    /**
+     * Sets the returned flag in a single statement, reopening or releasing the book, when the loan is still
+     * at {@code version} (any version when null); returns 0 when the loan is missing or was changed meanwhile.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query( value = " update Loan l set l.returned = :returned, " +
+            " l.openBook = case when :returned = true then null else l.book.id end, " +
+            " l.version = l.version + 1 " +
+            " where l.id = :id and (:version is null or l.version = :version) ")
+    int updateReturned(@Param("id") Long id, @Param("returned") Boolean returned, @Param("version") Long version);
+
     @Query(value = " select case when (count(l.id) > 0) then true else false end " +
-            " from Loan l where l.id_book = :bookId and (l.returned is null or l.returned is false) ", nativeQuery = true)
+            " from Loan l where l.id_book = :bookId and (l.returned is null or l.returned = false) ", nativeQuery = true)
     boolean existsByBookAndNotReturned( @Param("bookId") Long bookId);
 
-    @Query( value = " select l from Loan l join l.book as b where b.isbn = :isbn or l.customer = :customer")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query( value = " select l from Loan l join fetch l.book as b where b.isbn = :isbn or l.customer = :customer",
+            countQuery = " select count(l) from Loan l join l.book as b where b.isbn = :isbn or l.customer = :customer")
     Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn,
                                         @Param("customer") String customer,
                                         Pageable pageable);
 
-    @Query( value = " select * from Loan l where l.loan_date <= :daysAgo and (l.returned is null or l.returned is false) ", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query( value = " select l from Loan l join fetch l.book as b " +
+            " where l.id > :after and (b.isbn = :isbn or l.customer = :customer) order by l.id ")
+    List<Loan> findByBookIsbnOrCustomerAfter(@Param("after") Long after,
+                                             @Param("isbn") String isbn,
+                                             @Param("customer") String customer,
+                                             Pageable pageable);
+
+    @Query( value = " select * from Loan l where l.loan_date <= :daysAgo and (l.returned is null or l.returned = false) ", nativeQuery = true)
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("daysAgo") LocalDate daysAgo);
 
+    @Query( value = " select l.id as id, l.customer as customer, l.customerEmail as customerEmail from Loan l " +
+            " where l.id > :after and l.loanDate <= :daysAgo and (l.returned is null or l.returned = false) " +
+            " and mod(l.id, :shards) = :shard " +
+            " order by l.id ")
+    List<DueLoan> findDueLoansAfter(@Param("daysAgo") LocalDate daysAgo,
+                                    @Param("after") Long after,
+                                    @Param("shard") int shard,
+                                    @Param("shards") int shards,
+                                    Pageable pageable);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    // id_book is nullable: an inner join would leave loans without a book out of the export
+    @Query( value = " select l from Loan l left join fetch l.book order by l.id ")
+    Stream<Loan> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 }
\ No newline at end of file
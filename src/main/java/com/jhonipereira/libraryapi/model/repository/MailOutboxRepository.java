@@ -0,0 +1,74 @@
+package com.jhonipereira.libraryapi.model.repository;
+
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    @Query("select o.idempotencyKey from MailOutbox o where o.idempotencyKey in :keys")
+    Set<String> findKeysIn(@Param("keys") Collection<String> keys);
+
+    /**
+     * Oldest unsent mails that are due. {@code idx_mail_outbox_pending} only covers the rows neither sent nor
+     * failed, so the scan reads the mails in flight and never the ones already done with.
+     */
+    @Query( value = " select o from MailOutbox o " +
+            " where o.sentAt is null and o.failedAt is null and o.attempts < :maxAttempts " +
+            " and (o.nextAttemptAt is null or o.nextAttemptAt <= :now) " +
+            " order by o.id ")
+    List<MailOutbox> findPending(@Param("now") LocalDateTime now,
+                                 @Param("maxAttempts") int maxAttempts,
+                                 Pageable pageable);
+
+    /**
+     * Leases a pending mail until {@code leaseUntil}; returns 0 when it was sent, failed or leased meanwhile.
+     */
+    @Transactional
+    @Modifying
+    @Query( value = " update MailOutbox o set o.attempts = o.attempts + 1, o.nextAttemptAt = :leaseUntil " +
+            " where o.id = :id and o.sentAt is null and o.failedAt is null and (o.nextAttemptAt is null or o.nextAttemptAt <= :now) ")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Marks failed the mails whose last attempt ran out its lease unsent, reading the same rows of
+     * {@code idx_mail_outbox_pending} as {@link #findPending}.
+     */
+    @Transactional
+    @Modifying
+    @Query( value = " update MailOutbox o set o.failedAt = :now " +
+            " where o.sentAt is null and o.failedAt is null and o.nextAttemptAt <= :now " +
+            " and o.attempts >= :maxAttempts ")
+    int markFailed(@Param("now") LocalDateTime now, @Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query("update MailOutbox o set o.sentAt = :sentAt where o.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Writes a mail to the customer of a loan without loading it; nothing when the loan has no email
+     * or a mail with the key was already written.
+     */
+    @Modifying
+    @Query( value = " insert into mail_outbox (idempotency_key, recipient, subject, body, created_at, attempts) " +
+            " select cast(:key as varchar(255)), l.customer_email, cast(:subject as varchar(255)), cast(:body as varchar(2000)), :now, 0 " +
+            " from loan l where l.id = :loanId and l.customer_email is not null " +
+            " and not exists (select 1 from mail_outbox o where o.idempotency_key = :key) ", nativeQuery = true)
+    int insertForLoan(@Param("key") String idempotencyKey,
+                      @Param("loanId") Long loanId,
+                      @Param("subject") String subject,
+                      @Param("body") String body,
+                      @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,11 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface BookImportService {
+    List<BookImportResultDTO> importBooks(Iterator<BookDTO> books);
+}
@@ -0,0 +1,22 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface BookSearchService {
+
+    Page<BookSummary> search(String query, Pageable pageable);
+
+    /**
+     * Queues the book for indexing; searches see it once the indexer applied its batch.
+     */
+    void index(BookSummary book);
+
+    void remove(Long id);
+
+    /**
+     * Re-indexes the whole book table and returns the number of books indexed.
+     */
+    long rebuild();
+}
@@ -1,9 +1,11 @@
 package com.jhonipereira.libraryapi.service;
 
 import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -15,7 +17,9 @@ public interface BookService {
 
     Book update(Book book);
 
-    Page<Book> find(Book filter, Pageable pageRequest);
+    Page<BookSummary> find(Book filter, Pageable pageRequest);
+
+    List<BookSummary> findAfter(Book filter, Long after, int size);
 
     Optional<Book> getBookByIsbn(String isbn);
 }
@@ -0,0 +1,22 @@
+package com.jhonipereira.libraryapi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class DueLoanReport {
+    private int shard;
+
+    private long processed;
+
+    private long queued;
+
+    private int chunks;
+
+    private Duration duration;
+}
@@ -1,7 +1,9 @@
 package com.jhonipereira.libraryapi.service;
 
-import java.util.List;
-
 public interface EmailService {
-    void sendMails(String message, List<String> mailList);
+
+    /**
+     * Queues a mail for delivery; {@code onSent} runs once the mail server accepted it.
+     */
+    void sendMail(String to, String subject, String text, Runnable onSent);
 }
@@ -0,0 +1,12 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+
+import java.util.function.Consumer;
+
+public interface ExportService {
+    void exportBooks(Consumer<Book> consumer);
+
+    void exportLoans(Consumer<Loan> consumer);
+}
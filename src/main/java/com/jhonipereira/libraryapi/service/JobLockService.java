@@ -0,0 +1,20 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.JobLock;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public interface JobLockService {
+
+    /**
+     * Leases the named lock for at most {@code lockAtMostFor}, so a node that dies does not hold it forever.
+     */
+    Optional<JobLock> tryLock(String name, Duration lockAtMostFor);
+
+    /**
+     * Gives the lock back, keeping it until {@code lockAtLeastFor} after it was taken so nodes whose
+     * schedule fires a little later do not run the same job again.
+     */
+    void unlock(JobLock lock, Duration lockAtLeastFor);
+}
@@ -3,6 +3,7 @@ package com.jhonipereira.libraryapi.service;
 import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.DueLoan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -17,9 +18,23 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
+    /**
+     * Sets the returned flag of a loan still at {@code expectedVersion} (any version when null) with a single update.
+     * Returns false when the loan does not exist and throws an
+     * {@link org.springframework.dao.OptimisticLockingFailureException} when it is at another version.
+     */
+    boolean markReturned(Long id, Boolean returned, Long expectedVersion);
+
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+    List<Loan> findAfter(LoanFilterDTO filter, Long after, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
     List<Loan> getAllDueLoans();
+
+    /**
+     * Seeks the due loans after an id whose id falls in {@code shard} out of {@code shards}; one shard covers them all.
+     */
+    List<DueLoan> getDueLoans(Long after, int size, int shard, int shards);
 }
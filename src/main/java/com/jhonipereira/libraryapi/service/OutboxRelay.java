@@ -0,0 +1,83 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drains the mail outbox into the {@link EmailService}, giving at-least-once delivery.
+ *
+ * <p>Each poll reads the oldest due rows from the start of the unsent ones, so a row whose lease ran out
+ * because the send failed or the process died, or one committed late with a lower id, is picked up on the
+ * next poll however many rows keep arriving behind it. A row is leased before it is submitted, which keeps
+ * it out of the following scans, and marked sent once the server accepted it; one still unsent when the lease
+ * of its last attempt runs out is marked failed, so the scans never walk over it again.
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private final MailOutboxRepository repository;
+    private final EmailService emailService;
+
+    @Value("${application.mail.outbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${application.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds = 300;
+
+    @Value("${application.mail.outbox.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    // a lock rather than synchronized: the poll blocks on JDBC and must not pin a virtual scheduler thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public OutboxRelay(MailOutboxRepository repository, EmailService emailService) {
+        this.repository = repository;
+        this.emailService = emailService;
+    }
+
+    @Scheduled(fixedDelayString = "${application.mail.outbox.poll-delay-millis:1000}")
+    public int relay() {
+        lock.lock();
+        try {
+            return poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int poll() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = repository.markFailed(now, maxAttempts);
+        if (failed > 0) {
+            log.warn("Outbox relay gave up on {} mails after {} attempts", failed, maxAttempts);
+        }
+        List<MailOutbox> pending = repository.findPending(now, maxAttempts, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        int submitted = 0;
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        for (MailOutbox mail : pending) {
+            // the conditional update keeps a row from being sent twice while its lease is held
+            if (repository.claim(mail.getId(), now, leaseUntil) == 1) {
+                Long id = mail.getId();
+                emailService.sendMail(mail.getRecipient(), mail.getSubject(), mail.getBody(),
+                        () -> repository.markSent(id, LocalDateTime.now()));
+                submitted++;
+            }
+        }
+        log.debug("Outbox relay submitted {} of {} pending mails", submitted, pending.size());
+        return submitted;
+    }
+}
@@ -0,0 +1,23 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+
+import java.util.List;
+
+public interface OutboxService {
+
+    /**
+     * Writes a mail to the outbox in the caller's transaction, unless one with the same key was already written.
+     */
+    boolean enqueue(String idempotencyKey, String recipient, String subject, String body);
+
+    /**
+     * Like {@link #enqueue}, addressed to the customer email of a loan without reading the loan first.
+     */
+    boolean enqueueForLoan(String idempotencyKey, Long loanId, String subject, String body);
+
+    /**
+     * Writes the mails whose keys are not in the outbox yet and returns how many were written.
+     */
+    int enqueueAll(List<MailOutbox> mails);
+}
@@ -1,35 +1,118 @@
 package com.jhonipereira.libraryapi.service;
 
-import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.config.MetricsConfig;
+import com.jhonipereira.libraryapi.model.entity.JobLock;
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import com.jhonipereira.libraryapi.model.repository.DueLoan;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @EnableScheduling
 @RequiredArgsConstructor
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+    private static final String SUBJECT = "Due book loan";
+    private static final String LOCK_NAME = "due-loan-notification";
     @Value("${application.mail.dueloans.message}")
     private String message;
 
+    @Value("${application.mail.dueloans.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${application.jobs.due-loans.shards:1}")
+    private int shards = 1;
+
+    @Value("${application.jobs.due-loans.lock-at-most-for:PT30M}")
+    private Duration lockAtMostFor = Duration.ofMinutes(30);
+
+    @Value("${application.jobs.due-loans.lock-at-least-for:PT5M}")
+    private Duration lockAtLeastFor = Duration.ofMinutes(5);
+
     private final LoanService loanService;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
+    private final JobLockService jobLockService;
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendMailToLateLoans(){
-        List<Loan> allDueLoans = loanService.getAllDueLoans();
-        List<String> mailList = allDueLoans.stream()
-                .map(loan -> loan.getCustomer())
-                .collect(Collectors.toList());
+        for (DueLoanReport report : runDueLoanJob()) {
+            log.info("Due loan notification shard {}/{}: {} loans processed, {} mails queued in {} chunks, took {} ms",
+                    report.getShard(), shards, report.getProcessed(), report.getQueued(), report.getChunks(),
+                    report.getDuration().toMillis());
+        }
+    }
+
+    /**
+     * Runs every shard of the job this node manages to lock. With a single shard only one node runs the job;
+     * with more, nodes firing at the same time each take the shards still free and work through them in parallel.
+     */
+    public List<DueLoanReport> runDueLoanJob(){
+        List<DueLoanReport> reports = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            String name = shards == 1 ? LOCK_NAME : LOCK_NAME + ":" + shard + "/" + shards;
+            Optional<JobLock> lock = jobLockService.tryLock(name, lockAtMostFor);
+            if (lock.isEmpty()) {
+                continue;
+            }
+            try {
+                reports.add(notifyDueLoans(shard, shards));
+            } finally {
+                jobLockService.unlock(lock.get(), lockAtLeastFor);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Walks the overdue loans by id in chunks of {@code chunkSize}, so only one chunk is held in memory,
+     * and writes one outbox mail per loan to the customer's email, skipping loans without one. The key carries
+     * the day, so running the job again the same day does not mail anyone twice.
+     */
+    public DueLoanReport notifyDueLoans(int shard, int shards){
+        long start = System.nanoTime();
+        long processed = 0;
+        long queued = 0;
+        int chunks = 0;
+
+        LocalDate today = LocalDate.now();
+        Long after = 0L;
+        List<DueLoan> chunk;
+        do {
+            chunk = loanService.getDueLoans(after, chunkSize, shard, shards);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<MailOutbox> mails = chunk.stream()
+                    .filter(loan -> loan.getCustomerEmail() != null)
+                    .map(loan -> MailOutbox.builder()
+                            .idempotencyKey("due-loan:" + loan.getId() + ":" + today)
+                            .recipient(loan.getCustomerEmail())
+                            .subject(SUBJECT)
+                            .body(message)
+                            .build())
+                    .collect(Collectors.toList());
 
-        emailService.sendMails(message, mailList);
+            processed += chunk.size();
+            queued += outboxService.enqueueAll(mails);
+            chunks++;
+            after = chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == chunkSize);
 
+        return new DueLoanReport(shard, processed, queued, chunks, Duration.ofNanos(System.nanoTime() - start));
     }
 }
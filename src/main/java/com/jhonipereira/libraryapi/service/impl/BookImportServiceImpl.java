@@ -0,0 +1,161 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO.Status;
+import com.jhonipereira.libraryapi.api.mapper.BookMapper;
+import com.jhonipereira.libraryapi.exception.BusinessException;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.service.BookImportService;
+import com.jhonipereira.libraryapi.service.BookService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.jhonipereira.libraryapi.config.CacheConfig.BOOKS;
+import static com.jhonipereira.libraryapi.config.CacheConfig.BOOKS_BY_ISBN;
+
+/**
+ * Imports books in chunks: each chunk is validated, checked against the ISBNs already stored
+ * with a single query and written in one transaction, so Hibernate can batch the inserts.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private final BookRepository repository;
+    private final BookService bookService;
+    private final BookMapper bookMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${application.books.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    public BookImportServiceImpl(BookRepository repository,
+                                 BookService bookService,
+                                 BookMapper bookMapper,
+                                 Validator validator,
+                                 TransactionTemplate transactionTemplate,
+                                 CacheManager cacheManager) {
+        this.repository = repository;
+        this.bookService = bookService;
+        this.bookMapper = bookMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public List<BookImportResultDTO> importBooks(Iterator<BookDTO> books) {
+        List<BookImportResultDTO> results = new ArrayList<>();
+        List<BookDTO> chunk = new ArrayList<>(chunkSize);
+        long item = 0;
+        while (books.hasNext()) {
+            chunk.add(books.next());
+            if (chunk.size() == chunkSize) {
+                results.addAll(importChunk(chunk, item));
+                item += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(importChunk(chunk, item));
+        }
+        return results;
+    }
+
+    private List<BookImportResultDTO> importChunk(List<BookDTO> chunk, long offset) {
+        BookImportResultDTO[] results = new BookImportResultDTO[chunk.size()];
+        Map<Integer, Book> accepted = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            BookDTO dto = chunk.get(i);
+            Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                results[i] = result(offset + i, dto.getIsbn(), Status.INVALID, null, violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.toList()));
+            } else if (!seen.add(dto.getIsbn())) {
+                results[i] = duplicate(offset + i, dto.getIsbn());
+            } else {
+                Book book = bookMapper.toEntity(dto);
+                book.setId(null);
+                accepted.put(i, book);
+            }
+        }
+
+        // earlier chunks are already committed, so this single query also covers them
+        Set<String> existing = seen.isEmpty() ? Collections.emptySet() : repository.findIsbnsIn(seen);
+        accepted.entrySet().removeIf(entry -> {
+            if (existing.contains(entry.getValue().getIsbn())) {
+                results[entry.getKey()] = duplicate(offset + entry.getKey(), entry.getValue().getIsbn());
+                return true;
+            }
+            return false;
+        });
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(accepted.values()));
+        } catch (DataIntegrityViolationException e) {
+            // an ISBN was created concurrently or a row broke another constraint: fall back to one insert per book
+            // for this chunk, so only the offending books are left out
+            accepted.values().forEach(book -> book.setId(null));
+            saveOneByOne(accepted, results, offset);
+            return Arrays.asList(results);
+        }
+
+        // the ids and ISBNs may have been read, and cached as missing, before the books existed
+        Cache byId = cacheManager.getCache(BOOKS);
+        Cache byIsbn = cacheManager.getCache(BOOKS_BY_ISBN);
+        accepted.forEach((i, book) -> {
+            results[i] = result(offset + i, book.getIsbn(), Status.CREATED, book.getId(), null);
+            if (byId != null) {
+                byId.evict(book.getId());
+            }
+            if (byIsbn != null) {
+                byIsbn.evict(book.getIsbn());
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    private void saveOneByOne(Map<Integer, Book> accepted, BookImportResultDTO[] results, long offset) {
+        accepted.forEach((i, book) -> {
+            try {
+                Book saved = bookService.save(book);
+                results[i] = result(offset + i, book.getIsbn(), Status.CREATED, saved.getId(), null);
+            } catch (BusinessException e) {
+                results[i] = duplicate(offset + i, book.getIsbn());
+            } catch (DataIntegrityViolationException e) {
+                // e.g. a value longer than its column; the earlier chunks stay committed
+                results[i] = result(offset + i, book.getIsbn(), Status.INVALID, null, List.of("Rejected by the database."));
+            }
+        });
+    }
+
+    private static BookImportResultDTO duplicate(long index, String isbn) {
+        return result(index, isbn, Status.DUPLICATE, null, List.of("ISBN already in use."));
+    }
+
+    private static BookImportResultDTO result(long index, String isbn, Status status, Long id, List<String> errors) {
+        return BookImportResultDTO.builder()
+                .item(index + 1)
+                .isbn(isbn)
+                .status(status)
+                .id(id)
+                .errors(errors)
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Captures every write of a {@link Book}, whatever the code path, and hands it to the search index
+ * once the transaction commits. The values are taken when Hibernate flushes them, so a rolled back
+ * change never reaches the index. Hibernate creates the listener through Spring, and the search
+ * service is looked up lazily because it depends on the repositories being built at that time.
+ */
+public class BookIndexListener {
+
+    private final ObjectProvider<BookSearchService> searchService;
+
+    public BookIndexListener(ObjectProvider<BookSearchService> searchService) {
+        this.searchService = searchService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Book book) {
+        BookSummary summary = new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+        afterCommit(search -> search.index(summary));
+    }
+
+    @PostRemove
+    public void removed(Book book) {
+        Long id = book.getId();
+        afterCommit(search -> search.remove(id));
+    }
+
+    private void afterCommit(Consumer<BookSearchService> change) {
+        BookSearchService search = searchService.getIfAvailable();
+        if (search == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.accept(search);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.accept(search);
+            }
+        });
+    }
+}
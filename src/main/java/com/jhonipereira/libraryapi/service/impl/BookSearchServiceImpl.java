@@ -0,0 +1,355 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.exception.BusinessException;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps an in-memory Lucene index of book titles and authors, rebuilt from the database at startup.
+ * Every query term must match the title or the author, either whole or as a prefix;
+ * whole words and title matches rank first.
+ *
+ * <p>Changes are queued and applied by a single indexer thread in batches, with one reader refresh
+ * per batch, so writers never wait on the index. A rebuild reads the book table in id ranges on
+ * several threads; the indexer pauses meanwhile and applies what was queued once it is done.
+ */
+@Slf4j
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String AUTHOR = "author";
+    static final String ISBN = "isbn";
+
+    private static final float TITLE_BOOST = 2f;
+    private static final float PREFIX_BOOST = 0.5f;
+
+    private final BookRepository repository;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Change> queue;
+    private final int batchSize;
+    private final int rebuildThreads;
+    private final int rebuildChunkSize;
+    private final int maxResults;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory = new ByteBuffersDirectory();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong applied = new AtomicLong();
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private Thread indexer;
+    private volatile boolean running;
+    private volatile long inFlightSince;
+
+    public BookSearchServiceImpl(BookRepository repository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.search.index.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${application.search.index.batch-size:500}") int batchSize,
+                                 @Value("${application.search.rebuild.threads:0}") int rebuildThreads,
+                                 @Value("${application.search.rebuild.chunk-size:10000}") int rebuildChunkSize,
+                                 @Value("${application.search.max-results:10000}") int maxResults) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        this.rebuildChunkSize = rebuildChunkSize;
+        this.maxResults = maxResults;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        searcherManager = new SearcherManager(writer, null);
+
+        Gauge.builder("search.index.lag", this, s -> s.lag().toMillis() / 1000.0)
+                .description("Age of the oldest book change not yet searchable")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("search.index.pending", queue, BlockingQueue::size)
+                .description("Book changes waiting for the indexer")
+                .register(meterRegistry);
+
+        running = true;
+        indexer = new Thread(this::work, "search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Applies what is still queued, then closes the index.
+     */
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        indexer.join(TimeUnit.SECONDS.toMillis(30));
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        long indexed = rebuild();
+        log.info("Search index built with {} books", indexed);
+    }
+
+    @Override
+    public Page<BookSummary> search(String text, Pageable pageable) {
+        // a page is collected with every hit before it, so deep pages cost memory in proportion to their depth
+        if (pageable.getOffset() + pageable.getPageSize() > maxResults) {
+            throw new BusinessException("Search results are limited to the first " + maxResults + ", narrow the query.");
+        }
+        Query query = parse(text);
+        if (query == null) {
+            return Page.empty(pageable);
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int offset = (int) pageable.getOffset();
+                TopScoreDocCollector collector = TopScoreDocCollector.create(offset + pageable.getPageSize(), Integer.MAX_VALUE);
+                searcher.search(query, collector);
+
+                StoredFields fields = searcher.storedFields();
+                List<BookSummary> content = new ArrayList<>();
+                for (ScoreDoc hit : collector.topDocs(offset, pageable.getPageSize()).scoreDocs) {
+                    Document doc = fields.document(hit.doc);
+                    content.add(new BookSummary(Long.valueOf(doc.get(ID)), doc.get(TITLE), doc.get(AUTHOR), doc.get(ISBN)));
+                }
+                return new PageImpl<>(content, pageable, collector.getTotalHits());
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void index(BookSummary book) {
+        enqueue(new Change(book.id(), book, System.nanoTime()));
+    }
+
+    @Override
+    public void remove(Long id) {
+        enqueue(new Change(id, null, System.nanoTime()));
+    }
+
+    @Override
+    public long rebuild() {
+        writeLock.lock();
+        try {
+            long maxId = repository.findMaxId();
+            AtomicLong nextChunk = new AtomicLong();
+            AtomicLong indexed = new AtomicLong();
+
+            writer.deleteAll();
+            ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+            try {
+                List<Future<?>> readers = new ArrayList<>();
+                for (int i = 0; i < rebuildThreads; i++) {
+                    readers.add(executor.submit(() -> {
+                        for (long after = nextChunk.getAndAdd(rebuildChunkSize); after < maxId; after = nextChunk.getAndAdd(rebuildChunkSize)) {
+                            for (BookSummary book : repository.findSummariesBetween(after, after + rebuildChunkSize)) {
+                                writer.addDocument(document(book));
+                                indexed.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> reader : readers) {
+                    reader.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            return indexed.get();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("search index rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("search index rebuild failed", e.getCause());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * How long the oldest change that is not searchable yet has been waiting, zero when the index is current.
+     */
+    public Duration lag() {
+        long now = System.nanoTime();
+        long oldest = inFlightSince;
+        Change head = queue.peek();
+        if (head != null && (oldest == 0 || head.queuedAt() - oldest < 0)) {
+            oldest = head.queuedAt();
+        }
+        return oldest == 0 ? Duration.ZERO : Duration.ofNanos(now - oldest);
+    }
+
+    public long appliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * Queues a change, blocking while the queue is full so the indexer can catch up.
+     */
+    private void enqueue(Change change) {
+        try {
+            queue.put(change);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Search index change for book {} dropped; a rebuild will restore it", change.id());
+        }
+    }
+
+    private void work() {
+        List<Change> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(List<Change> batch) {
+        inFlightSince = batch.get(0).queuedAt();
+        // only the last change of a book in the batch matters
+        Map<Long, Change> latest = new LinkedHashMap<>();
+        batch.forEach(change -> latest.put(change.id(), change));
+
+        writeLock.lock();
+        try {
+            for (Change change : latest.values()) {
+                Term id = new Term(ID, change.id().toString());
+                if (change.book() == null) {
+                    writer.deleteDocuments(id);
+                } else {
+                    writer.updateDocument(id, document(change.book()));
+                }
+            }
+            searcherManager.maybeRefreshBlocking();
+            applied.addAndGet(batch.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to apply {} search index changes; a rebuild will restore them", batch.size(), e);
+        } finally {
+            writeLock.unlock();
+            inFlightSince = 0;
+        }
+    }
+
+    private static Document document(BookSummary book) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, book.id().toString(), Field.Store.YES));
+        doc.add(new TextField(TITLE, nullToEmpty(book.title()), Field.Store.YES));
+        doc.add(new TextField(AUTHOR, nullToEmpty(book.author()), Field.Store.YES));
+        doc.add(new StoredField(ISBN, nullToEmpty(book.isbn())));
+        return doc;
+    }
+
+    private Query parse(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        int terms = 0;
+        try (TokenStream tokens = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                query.add(term(term.toString()), Occur.MUST);
+                terms++;
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms == 0 ? null : query.build();
+    }
+
+    private static Query term(String text) {
+        return new BooleanQuery.Builder()
+                .add(new BoostQuery(new TermQuery(new Term(TITLE, text)), TITLE_BOOST), Occur.SHOULD)
+                .add(new TermQuery(new Term(AUTHOR, text)), Occur.SHOULD)
+                .add(new BoostQuery(new PrefixQuery(new Term(TITLE, text)), TITLE_BOOST * PREFIX_BOOST), Occur.SHOULD)
+                .add(new BoostQuery(new PrefixQuery(new Term(AUTHOR, text)), PREFIX_BOOST), Occur.SHOULD)
+                .build();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * A book to (re)index, or a removal when {@code book} is null.
+     */
+    private record Change(Long id, BookSummary book, long queuedAt) {
+    }
+}
@@ -1,40 +1,81 @@
 package com.jhonipereira.libraryapi.service.impl;
 
+import com.jhonipereira.libraryapi.config.MetricsConfig;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
 import com.jhonipereira.libraryapi.service.BookService;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
+import static com.jhonipereira.libraryapi.config.CacheConfig.BOOKS;
+import static com.jhonipereira.libraryapi.config.CacheConfig.BOOKS_BY_ISBN;
+
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class BookServiceImpl implements BookService {
 
+    private static final String UNIQUE_ISBN = "uk_book_isbn";
+
     private BookRepository repository;
+    private final Counter duplicateIsbnRejections;
 
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(BookRepository repository, MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.duplicateIsbnRejections = Counter.builder("library.books.rejected")
+                .description("Books refused because their ISBN is already registered")
+                .tag("reason", "duplicate-isbn")
+                .register(meterRegistry);
     }
 
     @Override
+    @Caching(evict = {
+            // a read of the id before it was assigned has cached it as missing
+            @CacheEvict(cacheNames = BOOKS, key = "#result.id", condition = "#result?.id != null"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book.isbn != null")
+    })
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())){
+        // a single insert: the unique ISBN constraint rejects duplicates, even concurrent ones
+        try {
+            return repository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            if (!Constraints.violated(e, UNIQUE_ISBN)) {
+                throw e;
+            }
+            duplicateIsbnRejections.increment();
             throw new BusinessException("ISBN already in use.");
         }
-        return repository.save(book);
     }
 
     @Override
+    @Cacheable(cacheNames = BOOKS, key = "#id", sync = true)
     public Optional<Book> getById(Long id) {
-        return repository.findById(id);
+        // sync: the load holds the lock of its key, so an eviction arriving meanwhile waits and then drops what
+        // was loaded; its waiters park rather than pin a virtual thread's carrier (see KeyLockingCache)
+        return repository.findById(id).map(BookServiceImpl::detached);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOKS, key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null")
+    })
+    @Transactional
     public void delete(Book book) {
         if(book==null || book.getId()==null){
             throw new IllegalArgumentException("Book can't be null.");
@@ -43,25 +84,47 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = BOOKS, key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = BOOKS_BY_ISBN, key = "#book.isbn", condition = "#book?.isbn != null")
+    })
+    @Transactional
     public Book update(Book book) {
+        // evicted once this commits, so a read running meanwhile cannot leave the old row cached
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book can't be null.");
         }
+        if (book.getVersion() == null) {
+            // no precondition: the change goes on top of the row as it is now
+            book.setVersion(repository.findById(book.getId()).map(Book::getVersion).orElseThrow(
+                    () -> new EmptyResultDataAccessException("Book " + book.getId() + " does not exist.", 1)));
+        }
         return this.repository.save(book);
     }
 
     @Override
-    public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter, ExampleMatcher.matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
-                                );
-        return repository.findAll(example, pageRequest);
+    @Transactional(readOnly = true)
+    public Page<BookSummary> find(Book filter, Pageable pageRequest) {
+        // listings only read: project the columns instead of hydrating managed entities
+        return repository.findSummaries(filter.getTitle(), filter.getAuthor(), filter.getIsbn(), pageRequest);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookSummary> findAfter(Book filter, Long after, int size) {
+        return repository.findAfter(after, filter.getTitle(), filter.getAuthor(), filter.getIsbn(), PageRequest.of(0, size));
     }
 
     @Override
+    @Cacheable(cacheNames = BOOKS_BY_ISBN, key = "#isbn", sync = true)
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        return repository.findByIsbn(isbn).map(BookServiceImpl::detached);
+    }
+
+    // the caches hold a plain copy of the row, not the entity Hibernate loaded with its lazy loans
+    private static Book detached(Book book) {
+        return Book.builder().id(book.getId()).title(book.getTitle()).author(book.getAuthor()).isbn(book.getIsbn())
+                .version(book.getVersion()).lastModified(book.getLastModified())
+                .build();
     }
 }
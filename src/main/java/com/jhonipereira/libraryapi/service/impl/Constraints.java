@@ -0,0 +1,30 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * Tells which database constraint an integrity violation came from, so a service only turns the one it
+ * expects into a business error and lets any other (a too long column, a missing foreign key) through.
+ */
+final class Constraints {
+
+    private Constraints(){
+    }
+
+    /**
+     * Matches by containment: H2 reports the index behind a constraint, e.g. {@code PUBLIC.UK_BOOK_ISBN_INDEX_7},
+     * where PostgreSQL reports the constraint name itself.
+     */
+    static boolean violated(DataIntegrityViolationException e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                String name = violation.getConstraintName();
+                return name != null && name.toLowerCase(Locale.ROOT).contains(constraint);
+            }
+        }
+        return false;
+    }
+}
@@ -1,33 +1,40 @@
 package com.jhonipereira.libraryapi.service.impl;
 
+import com.jhonipereira.libraryapi.config.MetricsConfig;
 import com.jhonipereira.libraryapi.service.EmailService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
 @RequiredArgsConstructor
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class EmailServiceImpl implements EmailService {
 
     @Value("${application.mail.default-sender}")
     private String sender;
 
-    private final JavaMailSender javaMailSender;
+    private final MailDispatcher mailDispatcher;
 
+    /**
+     * Hands a single-recipient message to the {@link MailDispatcher}, so recipients never see
+     * each other and a failed address does not drop the rest.
+     */
     @Override
-    public void sendMails(String message, List<String> mailList) {
-//        4d86e405ec-c703cb@inbox.mailtrap.io
+    public void sendMail(String to, String subject, String text, Runnable onSent) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(sender);
-        mailMessage.setSubject("Due book loan");
-        mailMessage.setText(message);
-        String[] mails = mailList.toArray(new String[mailList.size()]);
-        mailMessage.setTo(mails);
-
-        javaMailSender.send(mailMessage);
+        mailMessage.setSubject(subject);
+        mailMessage.setText(text);
+        mailMessage.setTo(to);
+        try {
+            mailDispatcher.submit(mailMessage, onSent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted while queueing mails", e);
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import com.jhonipereira.libraryapi.service.ExportService;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks whole tables through forward-only cursors. The persistence context is cleared
+ * every {@link #CLEAR_EVERY} rows so memory stays constant whatever the table size.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    static final int CLEAR_EVERY = 1000;
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final EntityManager entityManager;
+
+    public ExportServiceImpl(BookRepository bookRepository, LoanRepository loanRepository, EntityManager entityManager) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            export(books, consumer);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLoans(Consumer<Loan> consumer) {
+        try (Stream<Loan> loans = loanRepository.streamAll()) {
+            export(loans, consumer);
+        }
+    }
+
+    private <T> void export(Stream<T> rows, Consumer<T> consumer) {
+        long[] count = {0};
+        rows.forEach(row -> {
+            consumer.accept(row);
+            if (++count[0] % CLEAR_EVERY == 0) {
+                entityManager.clear();
+            }
+        });
+    }
+}
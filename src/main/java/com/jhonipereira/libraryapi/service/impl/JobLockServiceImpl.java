@@ -0,0 +1,69 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.model.entity.JobLock;
+import com.jhonipereira.libraryapi.model.repository.JobLockRepository;
+import com.jhonipereira.libraryapi.service.JobLockService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Lease lock kept in the {@code job_lock} table. Each lock is a single conditional update,
+ * so it holds across every node sharing the database without any extra coordination service.
+ */
+@Service
+public class JobLockServiceImpl implements JobLockService {
+
+    private final JobLockRepository repository;
+    private final String owner;
+
+    public JobLockServiceImpl(JobLockRepository repository) {
+        this.repository = repository;
+        this.owner = hostName() + ":" + UUID.randomUUID();
+    }
+
+    @Override
+    public Optional<JobLock> tryLock(String name, Duration lockAtMostFor) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(lockAtMostFor);
+        JobLock lock = JobLock.builder().name(name).owner(owner).lockedAt(now).lockedUntil(until).build();
+
+        if (repository.lease(name, owner, now, until) == 1) {
+            return Optional.of(lock);
+        }
+        if (repository.existsById(name)) {
+            return Optional.empty();
+        }
+        try {
+            repository.insert(name, owner, now, until);
+            return Optional.of(lock);
+        } catch (DataIntegrityViolationException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void unlock(JobLock lock, Duration lockAtLeastFor) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime keepUntil = lock.getLockedAt().plus(lockAtLeastFor);
+        repository.release(lock.getName(), lock.getOwner(), keepUntil.isAfter(now) ? keepUntil : now);
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
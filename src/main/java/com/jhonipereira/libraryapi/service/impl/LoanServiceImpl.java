@@ -1,34 +1,77 @@
 package com.jhonipereira.libraryapi.service.impl;
 
 import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
+import com.jhonipereira.libraryapi.config.MetricsConfig;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.DueLoan;
 import com.jhonipereira.libraryapi.model.repository.LoanRepository;
 import com.jhonipereira.libraryapi.service.LoanService;
+import com.jhonipereira.libraryapi.service.OutboxService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class LoanServiceImpl implements LoanService {
+    private static final int LOAN_DAYS = 4;
+    private static final String UNIQUE_OPEN_BOOK = "uk_loan_open_book";
+
     private final LoanRepository repository;
+    private final OutboxService outboxService;
+    private final Counter loansCreated;
+    private final Counter loansReturned;
+    private final Counter alreadyLoanedRejections;
+
+    @Value("${application.mail.loan.created.message:Your book loan was registered.}")
+    private String createdMessage = "Your book loan was registered.";
+
+    @Value("${application.mail.loan.returned.message:Your book return was registered.}")
+    private String returnedMessage = "Your book return was registered.";
 
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository, OutboxService outboxService, MeterRegistry meterRegistry) {
 
         this.repository = repository;
+        this.outboxService = outboxService;
+        this.loansCreated = Counter.builder("library.loans.created")
+                .description("Loans registered")
+                .register(meterRegistry);
+        this.loansReturned = Counter.builder("library.loans.returned")
+                .description("Loans marked as returned")
+                .register(meterRegistry);
+        this.alreadyLoanedRejections = Counter.builder("library.loans.rejected")
+                .description("Loans refused because the book is already on loan")
+                .tag("reason", "already-loaned")
+                .register(meterRegistry);
     }
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook().getId())){
-            throw new BusinessException("book already loaned");
+        // a single insert: the open book unique constraint rejects a second open loan of the same book
+        Loan saved;
+        try {
+            saved = repository.saveAndFlush(loan);
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyLoaned(e);
         }
-        return repository.save(loan);
+        loansCreated.increment();
+        notify(saved, "loan-created:", createdMessage);
+        return saved;
     }
 
     @Override
@@ -37,25 +80,88 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Loan saved = repository.save(loan);
+        if (Boolean.TRUE.equals(saved.getReturned())) {
+            loansReturned.increment();
+            notify(saved, "loan-returned:", returnedMessage);
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public boolean markReturned(Long id, Boolean returned, Long expectedVersion) {
+        int updated;
+        try {
+            updated = repository.updateReturned(id, returned, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw alreadyLoaned(e);
+        }
+        if (updated == 0) {
+            if (expectedVersion != null && repository.existsById(id)) {
+                throw new OptimisticLockingFailureException("Loan " + id + " was modified concurrently.");
+            }
+            return false;
+        }
+        if (Boolean.TRUE.equals(returned)) {
+            loansReturned.increment();
+            outboxService.enqueueForLoan("loan-returned:" + id, id, "Book loan", returnedMessage);
+        }
+        return true;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
         return repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Loan> findAfter(LoanFilterDTO filter, Long after, int size) {
+        return repository.findByBookIsbnOrCustomerAfter(after, filter.getIsbn(), filter.getCustomer(), PageRequest.of(0, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
     @Override
     public List<Loan> getAllDueLoans() {
+        return repository.findByLoanDateLessThanAndNotReturned(dueDate());
+    }
+
+    @Override
+    public List<DueLoan> getDueLoans(Long after, int size, int shard, int shards) {
+        return repository.findDueLoansAfter(dueDate(), after, shard, shards, PageRequest.of(0, size));
+    }
+
+    /**
+     * Writes the notification in the same transaction as the loan change, so neither is kept without the other.
+     */
+    private void notify(Loan loan, String keyPrefix, String message) {
+        if (loan.getCustomerEmail() != null) {
+            outboxService.enqueue(keyPrefix + loan.getId(), loan.getCustomerEmail(), "Book loan", message);
+        }
+    }
+
+    /**
+     * Only the open book constraint means the book is on loan; anything else, such as the book having been
+     * deleted since it was looked up ({@code fk_loan_book}), is passed on as it is.
+     */
+    private RuntimeException alreadyLoaned(DataIntegrityViolationException e) {
+        if (!Constraints.violated(e, UNIQUE_OPEN_BOOK)) {
+            return e;
+        }
+        alreadyLoanedRejections.increment();
+        return new BusinessException("book already loaned");
+    }
 
-        final Integer loanDays = 4;
-        LocalDate daysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(daysAgo);
+    private static LocalDate dueDate() {
+        return LocalDate.now().minusDays(LOAN_DAYS);
     }
 }
@@ -0,0 +1,234 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound mail pipeline: messages wait in a bounded queue and a fixed pool of workers sends them
+ * in batches, one {@link JavaMailSender#send(SimpleMailMessage...)} call (and so one SMTP connection)
+ * per batch. Sends are throttled by a token bucket and failed messages are retried with exponential backoff.
+ * The callback given with a message runs on the worker once that message was accepted by the server.
+ * Once bound to a registry it counts the messages sent and given up on and times each SMTP call.
+ */
+@Slf4j
+@Component
+public class MailDispatcher implements MeterBinder {
+
+    private final JavaMailSender javaMailSender;
+    private final BlockingQueue<Outgoing> queue;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final TokenBucket rateLimiter;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile Timer sendTimer;
+    private ThreadFactory threadFactory;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public MailDispatcher(JavaMailSender javaMailSender,
+                          @Value("${application.mail.dispatch.queue-capacity:10000}") int queueCapacity,
+                          @Value("${application.mail.dispatch.workers:4}") int workers,
+                          @Value("${application.mail.dispatch.batch-size:50}") int batchSize,
+                          @Value("${application.mail.dispatch.rate-per-second:100}") double ratePerSecond,
+                          @Value("${application.mail.dispatch.max-attempts:3}") int maxAttempts,
+                          @Value("${application.mail.dispatch.backoff-millis:500}") long backoffMillis) {
+        this.javaMailSender = javaMailSender;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.rateLimiter = new TokenBucket(ratePerSecond);
+    }
+
+    /**
+     * Replaces the daemon platform threads the workers run on, e.g. with virtual threads.
+     */
+    @Autowired(required = false)
+    public void setThreadFactory(@Qualifier("mailDispatcherThreadFactory") ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("library.mail.sent", this, MailDispatcher::sentCount)
+                .description("Mails accepted by the mail server")
+                .register(registry);
+        FunctionCounter.builder("library.mail.failed", this, MailDispatcher::failedCount)
+                .description("Mails given up on after the last attempt")
+                .register(registry);
+        Gauge.builder("library.mail.pending", this, MailDispatcher::pending)
+                .description("Mails waiting for a worker")
+                .register(registry);
+        sendTimer = Timer.builder("library.mail.send")
+                .description("One batch handed to the mail server, failed attempts included")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (threadFactory == null) {
+            AtomicInteger count = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "mail-dispatch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, threadFactory);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Stops accepting work and waits for the workers to drain what is already queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Mail dispatcher stopped with {} messages still queued", queue.size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a message, blocking while the queue is full.
+     */
+    public void submit(SimpleMailMessage message) throws InterruptedException {
+        submit(message, () -> { });
+    }
+
+    public void submit(SimpleMailMessage message, Runnable onSent) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("mail dispatcher is not running");
+        }
+        queue.put(new Outgoing(message, onSent));
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long sentCount() {
+        return sent.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    private void work() {
+        List<Outgoing> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Outgoing first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                send(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(List<Outgoing> batch) throws InterruptedException {
+        List<Outgoing> pending = batch;
+        for (int attempt = 1; ; attempt++) {
+            rateLimiter.acquire(pending.size());
+            long start = System.nanoTime();
+            try {
+                javaMailSender.send(pending.stream().map(Outgoing::message).toArray(SimpleMailMessage[]::new));
+                record(start);
+                completed(pending, Collections.emptyList());
+                return;
+            } catch (MailException e) {
+                record(start);
+                List<Outgoing> retry = failedMessages(e, pending);
+                completed(pending, retry);
+                if (attempt >= maxAttempts) {
+                    failed.addAndGet(retry.size());
+                    log.error("Giving up on {} mails after {} attempts", retry.size(), attempt, e);
+                    return;
+                }
+                log.warn("Failed to send {} mails, attempt {} of {}", retry.size(), attempt, maxAttempts, e);
+                pending = retry;
+                TimeUnit.MILLISECONDS.sleep(backoffMillis << (attempt - 1));
+            }
+        }
+    }
+
+    private void record(long start) {
+        Timer timer = sendTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A {@link MailSendException} names the messages that failed; anything else (connection or
+     * authentication errors) means the whole batch has to be sent again.
+     */
+    private static List<Outgoing> failedMessages(MailException e, List<Outgoing> batch) {
+        if (e instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()) {
+            List<Outgoing> retry = new ArrayList<>();
+            for (Outgoing outgoing : batch) {
+                if (sendException.getFailedMessages().containsKey(outgoing.message())) {
+                    retry.add(outgoing);
+                }
+            }
+            return retry;
+        }
+        return batch;
+    }
+
+    private void completed(List<Outgoing> batch, List<Outgoing> failures) {
+        for (Outgoing outgoing : batch) {
+            if (failures.contains(outgoing)) {
+                continue;
+            }
+            sent.incrementAndGet();
+            try {
+                outgoing.onSent().run();
+            } catch (RuntimeException e) {
+                log.error("Mail sent but its completion callback failed", e);
+            }
+        }
+    }
+
+    private record Outgoing(SimpleMailMessage message, Runnable onSent) {
+    }
+}
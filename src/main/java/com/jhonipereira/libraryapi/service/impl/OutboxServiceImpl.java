@@ -0,0 +1,60 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import com.jhonipereira.libraryapi.service.OutboxService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private final MailOutboxRepository repository;
+
+    public OutboxServiceImpl(MailOutboxRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    @Transactional
+    public boolean enqueue(String idempotencyKey, String recipient, String subject, String body) {
+        if (repository.existsByIdempotencyKey(idempotencyKey)) {
+            return false;
+        }
+        repository.save(MailOutbox.builder()
+                .idempotencyKey(idempotencyKey)
+                .recipient(recipient)
+                .subject(subject)
+                .body(body)
+                .build());
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean enqueueForLoan(String idempotencyKey, Long loanId, String subject, String body) {
+        return repository.insertForLoan(idempotencyKey, loanId, subject, body, LocalDateTime.now()) > 0;
+    }
+
+    @Override
+    @Transactional
+    public int enqueueAll(List<MailOutbox> mails) {
+        if (mails.isEmpty()) {
+            return 0;
+        }
+        // one lookup per chunk; the unique key still rejects a concurrent writer of the same mails
+        Set<String> existing = repository.findKeysIn(mails.stream()
+                .map(MailOutbox::getIdempotencyKey)
+                .collect(Collectors.toList()));
+        List<MailOutbox> fresh = mails.stream()
+                .filter(mail -> !existing.contains(mail.getIdempotencyKey()))
+                .collect(Collectors.toList());
+        repository.saveAll(fresh);
+        return fresh.size();
+    }
+}
@@ -0,0 +1,52 @@
+package com.jhonipereira.libraryapi.service.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket shared by the mail workers: refills {@code permitsPerSecond} tokens a second
+ * up to a burst of one second worth of tokens, and blocks callers until enough are available.
+ */
+final class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, permitsPerSecond);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire(permits)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes the permits when available, otherwise returns how long to wait before trying again.
+     * Requests larger than the burst capacity are allowed to drive the bucket negative.
+     */
+    private synchronized long tryAcquire(int permits) {
+        refill();
+        double needed = Math.min(permits, capacity);
+        if (tokens >= needed) {
+            tokens -= permits;
+            return 0;
+        }
+        return (long) ((needed - tokens) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,2 @@
+-- a mail out of attempts is marked failed, which takes it out of the pending ones for good
+alter table mail_outbox add column failed_at timestamp(6);
@@ -0,0 +1,18 @@
+create table book (
+    id bigint generated by default as identity,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    primary key (id)
+);
+
+create table loan (
+    id bigint generated by default as identity,
+    customer varchar(255),
+    customer_email varchar(255),
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
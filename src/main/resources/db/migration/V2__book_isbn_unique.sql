@@ -0,0 +1,2 @@
+-- existsByIsbn / findByIsbn run on every book and loan creation
+alter table book add constraint uk_book_isbn unique (isbn);
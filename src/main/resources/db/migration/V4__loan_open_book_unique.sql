@@ -0,0 +1,6 @@
+-- holds id_book while the loan is open and null once returned, so at most one open loan per book
+alter table loan add column open_book bigint;
+
+update loan set open_book = id_book where returned is null or returned = false;
+
+alter table loan add constraint uk_loan_open_book unique (open_book);
@@ -0,0 +1,16 @@
+-- mails waiting for delivery, written in the same transaction as the change that triggers them
+create table mail_outbox (
+    id bigint generated by default as identity,
+    idempotency_key varchar(255) not null,
+    recipient varchar(255) not null,
+    subject varchar(255),
+    body varchar(2000),
+    created_at timestamp(6) not null,
+    sent_at timestamp(6),
+    next_attempt_at timestamp(6),
+    attempts integer not null,
+    primary key (id),
+    constraint uk_mail_outbox_key unique (idempotency_key)
+);
+
+create index idx_mail_outbox_pending on mail_outbox (sent_at, id);
@@ -0,0 +1,8 @@
+-- leases that keep a scheduled job, or one shard of it, to a single node at a time
+create table job_lock (
+    name varchar(100) not null,
+    owner varchar(255),
+    locked_at timestamp(6),
+    locked_until timestamp(6) not null,
+    primary key (name)
+);
@@ -0,0 +1,3 @@
+-- optimistic locking: every update checks the version it read and bumps it
+alter table book add column version bigint default 0 not null;
+alter table loan add column version bigint default 0 not null;
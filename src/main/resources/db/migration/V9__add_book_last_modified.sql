@@ -0,0 +1,2 @@
+-- last change of a book, served as Last-Modified alongside the version ETag
+alter table book add column last_modified timestamp with time zone default current_timestamp not null;
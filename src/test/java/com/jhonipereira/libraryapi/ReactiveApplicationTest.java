@@ -0,0 +1,75 @@
+package com.jhonipereira.libraryapi;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.resource.BookController;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveApplicationTest {
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should serve the book and loan apis from the reactive controllers only")
+    public void reactiveDeploymentTest(){
+        assertThat(context.getBeanNamesForType(BookController.class)).isEmpty();
+
+        BookDTO book = client.post().uri("/api/books")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().title("King Arthur").author("Arthur").isbn("0002").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+
+        client.post().uri("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(LoanDTO.builder().isbn("0002").customer("John").build())
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.get().uri("/api/books/" + book.getId() + "/loans?page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content[0].customer").isEqualTo("John")
+                .jsonPath("totalElements").isEqualTo(1);
+
+        client.post().uri("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(LoanDTO.builder().isbn("0002").customer("Mary").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("book already loaned");
+    }
+}
@@ -3,22 +3,35 @@ package com.jhonipereira.libraryapi.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapperImpl;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapperImpl;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookImportService;
+import com.jhonipereira.libraryapi.service.BookSearchService;
 import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.ExportService;
+import com.jhonipereira.libraryapi.service.LoanService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -26,17 +39,22 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = BookController.class)
 @AutoConfigureMockMvc
+@Import({BookMapperImpl.class, LoanMapperImpl.class})
 public class BookControllerTest {
 
     static String BOOK_API = "/api/books";
@@ -46,6 +64,18 @@ public class BookControllerTest {
     @MockBean
     BookService service;
 
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    BookSearchService searchService;
+
+    @MockBean
+    BookImportService importService;
+
+    @MockBean
+    ExportService exportService;
+
     @Test
     @DisplayName("should create a book")
     public void createBookTest() throws Exception {
@@ -115,6 +145,7 @@ public class BookControllerTest {
                     .author(createNewBook().getAuthor())
                     .title(createNewBook().getTitle())
                     .isbn(createNewBook().getIsbn())
+                    .version(3L)
                     .build();
 
         BDDMockito.given(service.getById(id)).willReturn(Optional.of(book));
@@ -129,11 +160,40 @@ public class BookControllerTest {
                 .andExpect(jsonPath("id").value(id))
                 .andExpect(jsonPath("title").value(createNewBook().getTitle()))
                 .andExpect(jsonPath("author").value(createNewBook().getAuthor()))
-                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn())
-                );
+                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
 
     }
 
+    @Test
+    @DisplayName("should answer a conditional get of an unchanged book with 304 and no body")
+    public void getBookNotModifiedTest() throws Exception {
+        Instant lastModified = Instant.parse("2023-05-01T10:15:30Z");
+        Book book = Book.builder().id(11L).isbn("0002").version(3L).lastModified(lastModified).build();
+        BDDMockito.given(service.getById(11L)).willReturn(Optional.of(book));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11"))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(content().string(""));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11"))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, lastModified.toEpochMilli()))
+                .andExpect(jsonPath("isbn").value("0002"));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/11"))
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified.toEpochMilli())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     @DisplayName("should return NOT FOUND when the book does not exist")
     public void bookNotFoundTest() throws Exception {
@@ -182,11 +242,11 @@ public class BookControllerTest {
         Long id = 1L;
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
-        Book bookInStorage = Book.builder().id(id).title("some title").author("author").isbn("01929").build();
+        Book bookInStorage = Book.builder().id(id).title("some title").author("author").isbn("01929").version(4L).build();
         BDDMockito.given(service.getById(id))
                 .willReturn(Optional.of(bookInStorage));
-        Book updatedBook = Book.builder().id(id).author("Arthur").title("King Arthur").isbn("0002").build();
-        BDDMockito.given(service.update(bookInStorage)).willReturn(updatedBook);
+        Book updatedBook = Book.builder().id(id).author("Arthur").title("King Arthur").isbn("0002").version(5L).build();
+        BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(updatedBook);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + 1))
@@ -198,7 +258,79 @@ public class BookControllerTest {
                 .andExpect( status().isOk() )
                 .andExpect(jsonPath("title").value(createNewBook().getTitle()))
                 .andExpect(jsonPath("author").value(createNewBook().getAuthor()))
-                .andExpect(jsonPath("isbn").value("0002"));
+                .andExpect(jsonPath("isbn").value("0002"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+
+        ArgumentCaptor<Book> changed = ArgumentCaptor.forClass(Book.class);
+        Mockito.verify(service).update(changed.capture());
+        // no If-Match: the cached version may be old, the service applies the change to the current row
+        assertThat(changed.getValue().getVersion()).isNull();
+        assertThat(changed.getValue().getTitle()).isEqualTo(createNewBook().getTitle());
+    }
+
+    @Test
+    @DisplayName("should update a book at the version sent in If-Match")
+    public void updateBookIfMatchTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(1L))
+                .willReturn(Optional.of(Book.builder().id(1L).isbn("0002").version(4L).build()));
+        BDDMockito.given(service.update(Mockito.any(Book.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/" + 1))
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect( status().isPreconditionFailed() )
+                .andExpect(jsonPath("errors[0]").value("The resource was modified by another request."));
+
+        ArgumentCaptor<Book> changed = ArgumentCaptor.forClass(Book.class);
+        Mockito.verify(service).update(changed.capture());
+        assertThat(changed.getValue().getVersion()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("should return not found when the book is deleted while it is updated without If-Match")
+    public void updateDeletedBookTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        BDDMockito.given(service.getById(1L))
+                .willReturn(Optional.of(Book.builder().id(1L).isbn("0002").version(4L).build()));
+        BDDMockito.given(service.update(Mockito.any(Book.class)))
+                .willThrow(new EmptyResultDataAccessException(1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/" + 1))
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect( status().isNotFound() )
+                .andExpect(jsonPath("errors[0]").value("The resource does not exist."));
+    }
+
+    @Test
+    @DisplayName("should reject an If-Match header with several entity tags")
+    public void updateBookSeveralEntityTagsTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(createNewBook());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/" + 1))
+                .header(HttpHeaders.IF_MATCH, "\"1\", \"2\"")
+                .content(json)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect( status().isBadRequest() );
+
+        Mockito.verify(service, Mockito.never()).update(Mockito.any(Book.class));
     }
 
     @Test
@@ -219,6 +351,35 @@ public class BookControllerTest {
                 .andExpect( status().isNotFound() );
     }
 
+    @Test
+    @DisplayName("should answer a conditional get of an unchanged page of books with 304")
+    public void findBooksNotModifiedTest() throws Exception{
+        List<BookSummary> list = new ArrayList<>();
+        list.add(new BookSummary(11L, "King Arthur", "Arthur", "0002"));
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookSummary>(list, PageRequest.of(0, 20), 1));
+
+        String eTag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=King")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=King"))
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        BookSummary changed = new BookSummary(11L, "King Arthur", "Arthur Pendragon", "0002");
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookSummary>(List.of(changed), PageRequest.of(0, 20), 1));
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=King"))
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].author").value("Arthur Pendragon"));
+    }
+
     @Test
     @DisplayName("should filter books")
     public void findBooksTest() throws Exception{
@@ -229,10 +390,10 @@ public class BookControllerTest {
                 .title(createNewBook().getTitle())
                 .author(createNewBook().getAuthor()).build();
 
-        List<Book> list = new ArrayList<>();
-        list.add(book);
+        List<BookSummary> list = new ArrayList<>();
+        list.add(new BookSummary(id, book.getTitle(), book.getAuthor(), book.getIsbn()));
         BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
-                .willReturn(new PageImpl<Book>(list, PageRequest.of(0, 100), 1));
+                .willReturn(new PageImpl<BookSummary>(list, PageRequest.of(0, 100), 1));
 
 //        "/api/books"
         String queryString = String.format("?title=%s&author=%s&page=0&size=100",
@@ -251,6 +412,189 @@ public class BookControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("should search books by title and author words")
+    public void searchBooksTest() throws Exception{
+        BookSummary hit = new BookSummary(1L, "King Arthur", "Arthur", "0002");
+        BDDMockito.given(searchService.search(Mockito.eq("king art"), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookSummary>(List.of(hit), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/search?q=king art&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].title").value("King Arthur"))
+                .andExpect(jsonPath("totalElements").value(1))
+                .andExpect(jsonPath("pageable.pageSize").value(10));
+    }
+
+    @Test
+    @DisplayName("should answer a search page past the result limit with bad request")
+    public void searchBooksDeepPageTest() throws Exception{
+        BDDMockito.given(searchService.search(Mockito.eq("king"), Mockito.any(Pageable.class)))
+                .willThrow(new BusinessException("Search results are limited to the first 10000, narrow the query."));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/search?q=king&page=2147483647&size=100"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Search results are limited to the first 10000, narrow the query."));
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        Mockito.verify(searchService).search(Mockito.eq("king"), page.capture());
+        assertThat(page.getValue().getPageNumber()).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    @DisplayName("should filter books after a cursor without counting")
+    public void findBooksAfterCursorTest() throws Exception{
+        List<BookSummary> list = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            list.add(new BookSummary(id, "King Arthur", "Arthur", "00" + id));
+        }
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(0L), Mockito.eq(3)))
+                .willReturn(list);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?title=Arthur&after=&size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("size").value(2))
+                .andExpect(jsonPath("next").value(KeysetCursor.encode(2L)))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("should return bad request for an invalid cursor")
+    public void findBooksInvalidCursorTest() throws Exception{
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?after=%%%&size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("invalid cursor"));
+    }
+
+    @Test
+    @DisplayName("should import a JSON array of books")
+    public void createBatchJsonTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook(), new BookDTO()));
+
+        List<BookDTO> imported = performBatch(MediaType.APPLICATION_JSON_VALUE, json);
+
+        assertThat(imported).hasSize(2);
+        assertThat(imported.get(0).getIsbn()).isEqualTo("0002");
+        assertThat(imported.get(1).getIsbn()).isNull();
+    }
+
+    @Test
+    @DisplayName("should import newline delimited JSON books")
+    public void createBatchNdjsonTest() throws Exception{
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(createNewBook()) + "\n"
+                + objectMapper.writeValueAsString(BookDTO.builder().title("Other").author("Someone").isbn("0003").build()) + "\n";
+
+        List<BookDTO> imported = performBatch(MediaType.APPLICATION_NDJSON_VALUE, ndjson);
+
+        assertThat(imported).extracting(BookDTO::getIsbn).containsExactly("0002", "0003");
+    }
+
+    @Test
+    @DisplayName("should import CSV books")
+    public void createBatchCsvTest() throws Exception{
+        String csv = "title,author,isbn\nKing Arthur,Arthur,0002\nOther,Someone,0003\n";
+
+        List<BookDTO> imported = performBatch("text/csv", csv);
+
+        assertThat(imported).extracting(BookDTO::getTitle).containsExactly("King Arthur", "Other");
+    }
+
+    @Test
+    @DisplayName("should return bad request for a batch that is not a JSON array")
+    public void createBatchMalformedTest() throws Exception{
+        BDDMockito.given(importService.importBooks(Mockito.any())).willAnswer(invocation -> {
+            Iterator<BookDTO> books = invocation.getArgument(0);
+            books.forEachRemaining(book -> {});
+            return List.of();
+        });
+
+        mvc.perform(MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\": \"0002\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", Matchers.hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("should export the catalog as newline delimited JSON")
+    public void exportBooksNdjsonTest() throws Exception{
+        givenExportedBooks();
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"title\":\"King Arthur\",\"author\":\"Arthur\",\"isbn\":\"0002\"}\n" +
+                        "{\"id\":2,\"title\":\"Other\",\"author\":\"Someone\",\"isbn\":\"0003\"}\n"));
+    }
+
+    @Test
+    @DisplayName("should export the catalog as CSV")
+    public void exportBooksCsvTest() throws Exception{
+        givenExportedBooks();
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.csv\""))
+                .andExpect(content().string("id,title,author,isbn\n1,\"King Arthur\",Arthur,0002\n2,Other,Someone,0003\n"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenExportedBooks() {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(Book.builder().id(1L).title("King Arthur").author("Arthur").isbn("0002").build());
+            consumer.accept(Book.builder().id(2L).title("Other").author("Someone").isbn("0003").build());
+            return null;
+        }).given(exportService).exportBooks(Mockito.any(Consumer.class));
+    }
+
+    private List<BookDTO> performBatch(String contentType, String body) throws Exception {
+        List<BookDTO> imported = new ArrayList<>();
+        BDDMockito.given(importService.importBooks(Mockito.any())).willAnswer(invocation -> {
+            Iterator<BookDTO> books = invocation.getArgument(0);
+            books.forEachRemaining(imported::add);
+            List<BookImportResultDTO> results = new ArrayList<>();
+            for (int i = 0; i < imported.size(); i++) {
+                results.add(BookImportResultDTO.builder().item(i + 1).isbn(imported.get(i).getIsbn())
+                        .status(BookImportResultDTO.Status.CREATED).id((long) i + 1).build());
+            }
+            return results;
+        });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(contentType)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(imported.size())))
+                .andExpect(jsonPath("$[0].item").value(1))
+                .andExpect(jsonPath("$[0].status").value("CREATED"));
+        return imported;
+    }
+
     private BookDTO createNewBook() {
         return BookDTO.builder().author("Arthur").title("King Arthur").isbn("0002").build();
     }
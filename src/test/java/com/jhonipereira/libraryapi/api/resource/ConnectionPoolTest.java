@@ -0,0 +1,112 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The test holds one of the two pooled connections (Flyway needs both at startup), so a request that needed a
+ * second connection while holding the first, such as a transaction started inside another one, would wait
+ * out the connection timeout instead of succeeding.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.minimum-idle=2",
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ConnectionPoolTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    HikariPoolMXBean pool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        mailOutboxRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("should serve book and loan writes with one free connection and give it back after each request")
+    public void singleConnectionTest() throws Exception {
+        try (Connection held = dataSource.getConnection()) {
+            mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"title\":\"King Arthur\",\"author\":\"Arthur\",\"isbn\":\"0006\"}"))
+                    .andExpect(status().isCreated());
+            assertThat(pool.getActiveConnections()).isEqualTo(1);
+
+            String id = mvc.perform(post("/api/loans").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"isbn\":\"0006\",\"customer\":\"Fulano\",\"email\":\"customer@email.com\"}"))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            assertThat(pool.getActiveConnections()).isEqualTo(1);
+
+            mvc.perform(get("/api/loans/" + id)).andExpect(status().isOk());
+            mvc.perform(patch("/api/loans/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"returned\":true}"))
+                    .andExpect(status().isOk());
+            assertThat(pool.getActiveConnections()).isEqualTo(1);
+        }
+        assertThat(pool.getThreadsAwaitingConnection()).isZero();
+    }
+
+    @Test
+    @DisplayName("should answer 503 when no connection comes free within the connection timeout")
+    public void poolExhaustedTest() throws Exception {
+        Book book = bookRepository.save(Book.builder().title("King Arthur").author("Arthur").isbn("0007").build());
+
+        try (Connection held = dataSource.getConnection(); Connection alsoHeld = dataSource.getConnection()) {
+            mvc.perform(get("/api/books/" + book.getId()))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("errors[0]").value("The service is busy, please try again later."));
+        }
+
+        mvc.perform(get("/api/books/" + book.getId())).andExpect(status().isOk());
+    }
+}
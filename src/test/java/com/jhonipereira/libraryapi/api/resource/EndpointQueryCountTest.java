@@ -0,0 +1,109 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.jhonipereira.libraryapi.api.resource.QueryCounts.atMost;
+import static com.jhonipereira.libraryapi.api.resource.QueryCounts.noSlowStatements;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the main endpoints; raise one only when the extra query is intended.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class EndpointQueryCountTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    public void cleanUp(){
+        mailOutboxRepository.deleteAll();
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("should keep the book endpoints within their statement budgets")
+    public void bookEndpointsTest() throws Exception {
+        String json = "{\"title\":\"King Arthur\",\"author\":\"Arthur\",\"isbn\":\"0004\"}";
+        mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andExpect(atMost(2))
+                .andExpect(noSlowStatements());
+        Long id = bookRepository.findByIsbn("0004").map(Book::getId).orElseThrow();
+
+        mvc.perform(get("/api/books/" + id))
+                .andExpect(status().isOk())
+                .andExpect(atMost(1));
+        mvc.perform(get("/api/books/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Query-Count", "0"));
+        mvc.perform(get("/api/books").param("title", "King").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    @DisplayName("should keep the loan endpoints within their statement budgets")
+    public void loanEndpointsTest() throws Exception {
+        bookRepository.save(Book.builder().title("King Arthur").author("Arthur").isbn("0005").build());
+
+        String id = mvc.perform(post("/api/loans").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"0005\",\"customer\":\"Fulano\",\"email\":\"customer@email.com\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(atMost(4))
+                .andReturn().getResponse().getContentAsString();
+
+        long recorded = returns();
+        mvc.perform(get("/api/loans").param("isbn", "0005").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+        mvc.perform(patch("/api/loans/" + id).contentType(MediaType.APPLICATION_JSON).content("{\"returned\":true}"))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+
+        assertThat(returns()).isEqualTo(recorded + 1);
+    }
+
+    private long returns() {
+        DistributionSummary summary = meterRegistry.find("library.request.statements")
+                .tags("method", "PATCH", "uri", "/api/loans/{id}").summary();
+        return summary == null ? 0 : summary.count();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class LoanControllerConcurrencyTest {
+
+    private static final int REQUESTS = 300;
+    private static final int CLIENTS = 50;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @BeforeEach
+    public void setUp(){
+        bookRepository.save(Book.builder().title("King Arthur").author("Arthur").isbn("0002").build());
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should loan a book only once when it is requested concurrently")
+    public void concurrentLoansOfSameBookTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        LoanDTO dto = LoanDTO.builder().isbn("0002").customer("John").email("john@doe.com").build();
+
+        List<Future<ResponseEntity<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(executor.submit(() -> {
+                start.await();
+                return restTemplate.postForEntity("/api/loans", dto, String.class);
+            }));
+        }
+        start.countDown();
+
+        int created = 0;
+        int rejected = 0;
+        for (Future<ResponseEntity<String>> response : responses) {
+            ResponseEntity<String> entity = response.get(60, TimeUnit.SECONDS);
+            if (entity.getStatusCode() == HttpStatus.CREATED) {
+                created++;
+            } else {
+                assertThat(entity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+                assertThat(entity.getBody()).contains("book already loaned");
+                rejected++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(created).isEqualTo(1);
+        assertThat(rejected).isEqualTo(REQUESTS - 1);
+        assertThat(loanRepository.count()).isEqualTo(1);
+    }
+}
@@ -5,10 +5,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jhonipereira.libraryapi.api.dto.LoanDTO;
 import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
 import com.jhonipereira.libraryapi.api.dto.ReturnedLoanDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapperImpl;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapperImpl;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
 import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.ExportService;
 import com.jhonipereira.libraryapi.service.LoanService;
 import com.jhonipereira.libraryapi.service.LoanServiceTest;
 import org.hamcrest.Matchers;
@@ -21,9 +24,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
@@ -38,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -46,6 +53,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ActiveProfiles("test")
 @WebMvcTest(controllers = LoanController.class)
 @AutoConfigureMockMvc
+@Import({BookMapperImpl.class, LoanMapperImpl.class})
 public class LoanControllerTest
 {
 
@@ -59,6 +67,9 @@ public class LoanControllerTest
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private ExportService exportService;
+
     @Test
     @DisplayName("should do a loan")
     public void createLoanTest() throws Exception{
@@ -132,8 +143,7 @@ public class LoanControllerTest
         //scenario { returned: true }
 
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
-        Loan loanToUpdate = Loan.builder().id(1L).build();
-        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Optional.of(loanToUpdate));
+        BDDMockito.given(loanService.markReturned(1L, true, null)).willReturn(true);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -144,8 +154,46 @@ public class LoanControllerTest
                         .content(json)
         ).andExpect(status().isOk());
 
-        Mockito.verify(loanService, Mockito.times(1)).update(loanToUpdate);
+        Mockito.verify(loanService, Mockito.times(1)).markReturned(1L, true, null);
+        Mockito.verify(loanService, Mockito.never()).getById(Mockito.anyLong());
+
+    }
+
+    @Test
+    @DisplayName("should return a book from a loan at the version sent in If-Match")
+    public void returnBookIfMatchTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        BDDMockito.given(loanService.markReturned(1L, true, 2L)).willReturn(true);
+
+        String json = new ObjectMapper().writeValueAsString(dto);
 
+        mvc.perform(
+                patch(LOAN_API.concat("/1"))
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        ).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    @DisplayName("should return 412 when the loan was changed since the If-Match version")
+    public void returnBookStaleVersionTest() throws Exception {
+        ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+        BDDMockito.given(loanService.markReturned(1L, true, 2L))
+                .willThrow(new OptimisticLockingFailureException("stale"));
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        mvc.perform(
+                patch(LOAN_API.concat("/1"))
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        ).andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors[0]").value("The resource was modified by another request."));
     }
 
     @Test
@@ -153,7 +201,7 @@ public class LoanControllerTest
     public void returnNonExistentBookTest() throws Exception {
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
 
-        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+        BDDMockito.given(loanService.markReturned(Mockito.anyLong(), Mockito.any(), Mockito.any())).willReturn(false);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -165,6 +213,20 @@ public class LoanControllerTest
         ).andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("should get a loan with its entity tag")
+    public void getLoanTest() throws Exception {
+        Book book = Book.builder().id(1L).isbn("321").build();
+        Loan loan = Loan.builder().id(1L).customer("Fulano").book(book).loanDate(LocalDate.now()).version(7L).build();
+        BDDMockito.given(loanService.getById(1L)).willReturn(Optional.of(loan));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(1L))
+                .andExpect(jsonPath("isbn").value("321"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""));
+    }
+
 
     @Test
     @DisplayName("should find the loan")
@@ -195,4 +257,56 @@ public class LoanControllerTest
                 .andExpect(jsonPath("pageable.pageSize").value(100))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
+
+    @Test
+    @DisplayName("should find the loans after a cursor")
+    public void findLoanAfterCursorTest() throws Exception{
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(11L);
+        loan.setBook(Book.builder().id(11L).isbn("123").build());
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(10L), Mockito.eq(101)))
+                .willReturn(Arrays.asList(loan));
+
+        String queryString = String.format("?isbn=%s&customer=%s&after=%s&size=100",
+                "123", loan.getCustomer(), KeysetCursor.encode(10L)
+        );
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value("123"))
+                .andExpect(jsonPath("size").value(100))
+                .andExpect(jsonPath("next").isEmpty());
+    }
+
+    @Test
+    @DisplayName("should export the loan history as CSV")
+    @SuppressWarnings("unchecked")
+    public void exportLoansCsvTest() throws Exception{
+        Loan loan = Loan.builder().id(1L).customer("John").customerEmail("john@doe.com")
+                .book(Book.builder().id(2L).isbn("123").build())
+                .loanDate(LocalDate.of(2023, 1, 31)).returned(true).build();
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(loan);
+            return null;
+        }).given(exportService).exportLoans(Mockito.any(Consumer.class));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=csv")))
+                .andExpect(status().isOk())
+                .andExpect(content().string("id,isbn,customer,email,loanDate,returned\n1,123,John,john@doe.com,2023-01-31,true\n"));
+    }
+
+    @Test
+    @DisplayName("should reject an unknown export format")
+    public void exportLoansUnknownFormatTest() throws Exception{
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("format must be ndjson or csv"));
+    }
 }
@@ -0,0 +1,69 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+public class PrometheusEndpointTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @AfterEach
+    public void cleanUp(){
+        bookRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("should expose request, service and repository timers with histograms, the pool and cache metrics and the business counters")
+    public void scrapeTest() throws Exception {
+        String json = "{\"title\":\"King Arthur\",\"author\":\"Arthur\",\"isbn\":\"0003\"}";
+        mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated());
+        mvc.perform(post("/api/books").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isBadRequest());
+
+        String scrape = mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("http_server_requests_seconds{")
+                .containsPattern("library_service_seconds_bucket\\{class=\"[\\w.]*BookServiceImpl\"[^}]*method=\"save\"")
+                .containsPattern("spring_data_repository_invocations_seconds_bucket\\{[^}]*method=\"saveAndFlush\"[^}]*repository=\"BookRepository\"")
+                .containsPattern("library_books_rejected_total\\{reason=\"duplicate-isbn\",?\\} 1\\.0")
+                .contains("library_loans_created_total")
+                .contains("hikaricp_connections_acquire_seconds_bucket{")
+                .contains("hikaricp_connections_usage_seconds_bucket{")
+                .containsPattern("hikaricp_connections_pending\\{pool=\"library\",?\\}")
+                .containsPattern("hikaricp_connections_max\\{pool=\"library\",?\\} 10\\.0")
+                .contains("library_mail_sent_total")
+                .contains("cache_gets_total{cache=\"books\",");
+    }
+}
@@ -0,0 +1,43 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.QueryStatsFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MockMvc matchers on the statements a request ran, read from the {@code X-Query-*} headers the
+ * {@link QueryStatsFilter} adds in the test profile. For {@code @SpringBootTest} controller tests that go down to
+ * the database, so a change that adds queries to an endpoint fails its budget:
+ * <pre>
+ * mvc.perform(get("/api/books/1")).andExpect(QueryCounts.atMost(1));
+ * </pre>
+ */
+public final class QueryCounts {
+
+    private QueryCounts(){
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> assertThat(count(result.getResponse().getHeader(QueryStatsFilter.QUERY_COUNT)))
+                .as("statements run by %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                .isLessThanOrEqualTo(statements);
+    }
+
+    public static ResultMatcher exactly(int statements) {
+        return result -> assertThat(count(result.getResponse().getHeader(QueryStatsFilter.QUERY_COUNT)))
+                .as("statements run by %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                .isEqualTo(statements);
+    }
+
+    public static ResultMatcher noSlowStatements() {
+        return result -> assertThat(count(result.getResponse().getHeader(QueryStatsFilter.QUERY_SLOW)))
+                .as("slow statements run by %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                .isZero();
+    }
+
+    private static int count(String header) {
+        assertThat(header).as("query stats header, is application.jdbc.tracing.response-headers on?").isNotNull();
+        return Integer.parseInt(header);
+    }
+}
@@ -0,0 +1,215 @@
+package com.jhonipereira.libraryapi.api.resource;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapperImpl;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapperImpl;
+import com.jhonipereira.libraryapi.config.ReactiveWebConfig;
+import com.jhonipereira.libraryapi.exception.BusinessException;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.LoanService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.jhonipereira.libraryapi.api.resource.BookControllerTest.createNewBookStatic;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebFluxTest(controllers = ReactiveBookController.class)
+@Import({BookMapperImpl.class, LoanMapperImpl.class, ReactiveWebConfig.class})
+public class ReactiveBookControllerTest {
+
+    static final String BOOK_API = "/api/books";
+
+    @Autowired
+    WebTestClient client;
+
+    @MockBean
+    BookService service;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    BookSearchService searchService;
+
+    @Test
+    @DisplayName("should create a book")
+    public void createBookTest(){
+        Book savedBook = Book.builder().id(11L).author("Arthur").title("King Arthur").isbn("0002").build();
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(savedBook);
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().author("Arthur").title("King Arthur").isbn("0002").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isEqualTo(11)
+                .jsonPath("title").isEqualTo("King Arthur")
+                .jsonPath("isbn").isEqualTo("0002");
+    }
+
+    @Test
+    @DisplayName("should throw a validation error when there's no data to create the book")
+    public void createInvalidBookTest(){
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should return error when trying to create an ISBN that already exists")
+    public void createBookWithDuplicatedISBN(){
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willThrow(new BusinessException("ISBN already in use."));
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(BookDTO.builder().author("Arthur").title("King Arthur").isbn("0002").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("ISBN already in use.");
+    }
+
+    @Test
+    @DisplayName("should return resource not found when the book doesn't exist")
+    public void bookNotFoundTest(){
+        BDDMockito.given(service.getById(Mockito.anyLong())).willReturn(Optional.empty());
+
+        client.get().uri(BOOK_API + "/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("should update a book only at the version sent in If-Match")
+    public void updateBookStaleVersionTest(){
+        Book book = createNewBookStatic();
+        book.setId(1L);
+        book.setVersion(4L);
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+        BDDMockito.given(service.update(Mockito.any(Book.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1L));
+
+        client.put().uri(BOOK_API + "/1")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(BookDTO.builder().title("Other").author("Arthur").build())
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    @DisplayName("should answer a conditional get of an unchanged book with 304 and no body")
+    public void getBookNotModifiedTest(){
+        Book book = createNewBookStatic();
+        book.setId(1L);
+        book.setVersion(3L);
+        book.setLastModified(Instant.parse("2023-05-01T10:15:30Z"));
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        client.get().uri(BOOK_API + "/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .expectBody().isEmpty();
+
+        client.get().uri(BOOK_API + "/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectHeader().lastModified(book.getLastModified().toEpochMilli())
+                .expectBody()
+                .jsonPath("id").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should delete a book")
+    public void deleteBookTest(){
+        Book book = createNewBookStatic();
+        book.setId(1L);
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        client.delete().uri(BOOK_API + "/1")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        Mockito.verify(service).delete(book);
+    }
+
+    @Test
+    @DisplayName("should filter books with the same page contract as the servlet api")
+    public void findBooksTest(){
+        BookSummary book = new BookSummary(1L, "King Arthur", "Arthur", "0002");
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookSummary>(Arrays.asList(book), PageRequest.of(0, 100), 1));
+
+        client.get().uri(BOOK_API + "?title=King&author=Arthur&page=0&size=100")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("totalElements").isEqualTo(1)
+                .jsonPath("pageable.pageSize").isEqualTo(100)
+                .jsonPath("pageable.pageNumber").isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should seek books after a cursor")
+    public void findBooksAfterTest(){
+        BookSummary book = new BookSummary(5L, "King Arthur", "Arthur", "0002");
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.eq(0L), Mockito.eq(3)))
+                .willReturn(Arrays.asList(book));
+
+        client.get().uri(BOOK_API + "?after=&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(1)
+                .jsonPath("next").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("should search books with the same page contract as the servlet api")
+    public void searchBooksTest(){
+        BookSummary hit = new BookSummary(1L, "King Arthur", "Arthur", "0002");
+        BDDMockito.given(searchService.search(Mockito.eq("king"), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<BookSummary>(Arrays.asList(hit), PageRequest.of(0, 10), 1));
+
+        client.get().uri(BOOK_API + "/search?q=king&page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content[0].title").isEqualTo("King Arthur")
+                .jsonPath("totalElements").isEqualTo(1);
+    }
+}
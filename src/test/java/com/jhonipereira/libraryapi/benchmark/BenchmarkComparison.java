@@ -0,0 +1,90 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Diffs two JMH JSON result files, such as the ones the benchmark profile writes for two releases, and exits
+ * with 1 when a benchmark got slower (or allocates more) by more than the threshold and by more than the
+ * error margins of both runs together.
+ * <pre>
+ * mvn -Pbenchmark exec:java -Dexec.mainClass=com.jhonipereira.libraryapi.benchmark.BenchmarkComparison \
+ *     -Dexec.classpathScope=test -Dexec.args="jmh-0.0.1.json target/jmh-0.0.2-SNAPSHOT.json 10"
+ * </pre>
+ */
+public class BenchmarkComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    record Score(double value, double error, String unit, boolean higherIsBetter) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent, default 10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %s%n", entry.getKey(), "-", after.value(), "new", after.unit());
+                continue;
+            }
+            double change = (after.value() - before.value()) / before.value() * 100;
+            double worse = after.higherIsBetter() ? -change : change;
+            boolean regression = worse > threshold
+                    && Math.abs(after.value() - before.value()) > before.error() + after.error();
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), before.value(), after.value(),
+                    change, after.unit(), regression ? "  REGRESSION" : "");
+        }
+        baseline.keySet().stream().filter(key -> !current.containsKey(key))
+                .forEach(key -> System.out.printf("%-90s %14.3f %14s %9s%n", key, baseline.get(key).value(), "-", "gone"));
+
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) above " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * One entry per benchmark and parameter combination, plus one for its allocation when the gc profiler ran.
+     */
+    static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String key = result.get("benchmark").asText().replaceFirst("^.*\\.(\\w+\\.\\w+)$", "$1")
+                    + (params.isEmpty() ? "" : params.toString());
+            boolean throughput = "thrpt".equals(result.path("mode").asText());
+            scores.put(key, score(result.get("primaryMetric"), throughput));
+            JsonNode allocation = result.path("secondaryMetrics").path(ALLOCATION);
+            if (!allocation.isMissingNode()) {
+                scores.put(key + " " + ALLOCATION, score(allocation, false));
+            }
+        }
+        return scores;
+    }
+
+    private static Score score(JsonNode metric, boolean higherIsBetter) {
+        double error = metric.path("scoreError").asDouble(0);
+        return new Score(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+                metric.path("scoreUnit").asText(), higherIsBetter);
+    }
+}
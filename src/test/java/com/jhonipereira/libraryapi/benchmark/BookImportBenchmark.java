@@ -0,0 +1,71 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.service.BookImportService;
+import com.jhonipereira.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book ingest throughput in rows per second: batch import against one create per book.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(BookImportBenchmark.ROWS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookImportBenchmark {
+
+    static final int ROWS = 5000;
+
+    private ConfigurableApplicationContext context;
+    private BookImportService importService;
+    private BookService bookService;
+    private long run;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        importService = context.getBean(BookImportService.class);
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookImportResultDTO> batchImport(){
+        String prefix = "batch-" + run++ + "-";
+        List<BookDTO> books = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            books.add(BookDTO.builder().title("Title " + i).author("Author").isbn(prefix + i).build());
+        }
+        return importService.importBooks(books.iterator());
+    }
+
+    @Benchmark
+    public long oneByOne(){
+        String prefix = "single-" + run++ + "-";
+        long created = 0;
+        for (int i = 0; i < ROWS; i++) {
+            bookService.save(Book.builder().title("Title " + i).author("Author").isbn(prefix + i).build());
+            created++;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,86 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapper;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Work done by one {@code GET /api/books} page: the previous query by example, which hydrated
+ * managed {@link Book} entities, against the read-only {@link BookSummary} projection.
+ * Read {@code gc.alloc.rate.norm} (bytes per request) from the gc profiler the benchmark profile enables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookListingBenchmark {
+
+    @Param({"10000"})
+    private int books;
+
+    @Param({"20", "200"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private BookService bookService;
+    private BookMapper bookMapper;
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        repository = context.getBean(BookRepository.class);
+        bookService = context.getBean(BookService.class);
+        bookMapper = context.getBean(BookMapper.class);
+        pageRequest = PageRequest.of(10, pageSize);
+
+        context.getBean(JdbcTemplate.class).update("insert into book (title, author, isbn) " +
+                "select 'Title ' || x, 'Author ' || mod(x, 1000), 'isbn-' || x from system_range(1, ?)", books);
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Page<BookDTO> entities(){
+        Example<Book> example = Example.of(new Book(), ExampleMatcher.matching()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+        Page<Book> result = repository.findAll(example, pageRequest);
+        List<BookDTO> list = result.getContent().stream().map(bookMapper::toDto).collect(Collectors.toList());
+        return new PageImpl<>(list, pageRequest, result.getTotalElements());
+    }
+
+    @Benchmark
+    public Page<BookDTO> projections(){
+        Page<BookSummary> result = bookService.find(new Book(), pageRequest);
+        List<BookDTO> list = result.getContent().stream().map(bookMapper::toDto).collect(Collectors.toList());
+        return new PageImpl<>(list, pageRequest, result.getTotalElements());
+    }
+}
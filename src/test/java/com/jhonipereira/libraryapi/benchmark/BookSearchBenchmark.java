@@ -0,0 +1,82 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookSearchService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of a title search: the previous {@code lower(title) like '%q%'} query by example,
+ * which scans the whole table, against the Lucene index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class BookSearchBenchmark {
+
+    private static final String WORDS = "array['arthur', 'kingdom', 'river', 'shadow', 'garden', 'winter', 'empire', 'stone', " +
+            "'ocean', 'silver', 'forest', 'dragon', 'harbor', 'mirror', 'thunder', 'valley', 'crown', 'ember', " +
+            "'falcon', 'glacier', 'island', 'lantern', 'meadow', 'north', 'orchard', 'prairie', 'quarry', 'raven', " +
+            "'summit', 'tower', 'umber', 'violet', 'willow', 'yonder', 'zephyr', 'anchor', 'beacon']";
+
+    @Param({"1000000"})
+    private int books;
+
+    @Param({"arthur", "arth"})
+    private String query;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository repository;
+    private BookSearchService searchService;
+    private PageRequest firstPage;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        repository = context.getBean(BookRepository.class);
+        searchService = context.getBean(BookSearchService.class);
+        firstPage = PageRequest.of(0, 20);
+
+        // two words out of 37 per title, so a word matches about 1 in 19 books
+        context.getBean(JdbcTemplate.class).update("insert into book (title, author, isbn) " +
+                "select " + WORDS + "[mod(x, 37) + 1] || ' ' || " + WORDS + "[mod(x / 37, 37) + 1] || ' ' || x, " +
+                "'Author ' || mod(x, 1000), 'isbn-' || x from system_range(1, ?)", books);
+        searchService.rebuild();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> example(){
+        Example<Book> example = Example.of(Book.builder().title(query).build(), ExampleMatcher.matching()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+        return repository.findAll(example, firstPage);
+    }
+
+    @Benchmark
+    public Page<BookSummary> index(){
+        return searchService.search(query, firstPage);
+    }
+}
@@ -0,0 +1,93 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.config.MetricsConfig;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the metrics add to each service call: the same method called directly and through the {@link TimedAspect}
+ * proxy recording into a Prometheus registry with the histogram and percentiles configured for
+ * {@code library.service}, plus a business counter increment. The difference is the per-call overhead, to be
+ * read against the microseconds the calls in {@link ServiceBenchmark} take. The proxied call needs several
+ * seconds to get compiled, hence the longer warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 8, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public static class Lookup {
+
+        private final Map<Long, String> titles = new HashMap<>();
+
+        public Lookup() {
+            for (long i = 0; i < 1000; i++) {
+                titles.put(i, "Title " + i);
+            }
+        }
+
+        public String title(long id) {
+            return titles.get(id);
+        }
+    }
+
+    private Lookup plain;
+    private Lookup timed;
+    private Counter counter;
+    private long id;
+
+    @Setup
+    public void setup(){
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // what the management.metrics.distribution properties set up for the service timer
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id meterId, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentiles(0.5, 0.95, 0.99)
+                        .maximumExpectedValue((double) TimeUnit.SECONDS.toNanos(10))
+                        .build()
+                        .merge(config);
+            }
+        });
+        plain = new Lookup();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Lookup());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new TimedAspect(registry));
+        timed = factory.getProxy();
+        counter = Counter.builder("library.loans.created").register(registry);
+    }
+
+    @Benchmark
+    public String plainCall(){
+        return plain.title(id++ % 1000);
+    }
+
+    @Benchmark
+    public String timedCall(){
+        return timed.title(id++ % 1000);
+    }
+
+    @Benchmark
+    public String countedCall(){
+        counter.increment();
+        return plain.title(id++ % 1000);
+    }
+}
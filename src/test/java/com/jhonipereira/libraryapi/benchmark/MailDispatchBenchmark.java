@@ -0,0 +1,62 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.service.FakeJavaMailSender;
+import com.jhonipereira.libraryapi.service.impl.MailDispatcher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the mail pipeline against a fake sender that costs {@code latencyMicros} per SMTP
+ * round trip, compared with sending every message on the calling thread like the old EmailServiceImpl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MailDispatchBenchmark {
+
+    private static final int MAILS = 1000;
+
+    @Param({"1000"})
+    private long latencyMicros;
+
+    @Param({"1", "4"})
+    private int workers;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    @Benchmark
+    @OperationsPerInvocation(MAILS)
+    public long dispatcher() throws InterruptedException {
+        FakeJavaMailSender mailSender = new FakeJavaMailSender(latencyMicros);
+        MailDispatcher dispatcher = new MailDispatcher(mailSender, MAILS, workers, batchSize, 1_000_000, 3, 1);
+        dispatcher.start();
+        for (int i = 0; i < MAILS; i++) {
+            dispatcher.submit(message(i));
+        }
+        dispatcher.shutdown();
+        return dispatcher.sentCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MAILS)
+    public int callingThread() {
+        FakeJavaMailSender mailSender = new FakeJavaMailSender(latencyMicros);
+        for (int i = 0; i < MAILS; i++) {
+            mailSender.send(message(i));
+        }
+        return mailSender.getSendCalls();
+    }
+
+    private static SimpleMailMessage message(int i) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("customer" + i + "@mail.com");
+        message.setText("due loan");
+        return message;
+    }
+}
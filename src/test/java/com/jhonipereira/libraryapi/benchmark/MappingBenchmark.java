@@ -0,0 +1,83 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import com.jhonipereira.libraryapi.api.mapper.BookMapper;
+import com.jhonipereira.libraryapi.api.mapper.BookMapperImpl;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapper;
+import com.jhonipereira.libraryapi.api.mapper.LoanMapperImpl;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the generated mappers against the reflective ModelMapper path
+ * previously used by BookController and LoanController.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+
+    private BookDTO bookDTO;
+    private List<Loan> loans;
+
+    @Setup
+    public void setup(){
+        modelMapper = new ModelMapper();
+        bookMapper = new BookMapperImpl();
+        loanMapper = new LoanMapperImpl(bookMapper);
+
+        bookDTO = BookDTO.builder().title("King Arthur").author("Arthur").isbn("0002").build();
+        loans = new ArrayList<>();
+        for (long i = 0; i < pageSize; i++) {
+            Book book = Book.builder().id(i).title("Title " + i).author("Author " + i).isbn("isbn-" + i).build();
+            loans.add(Loan.builder().id(i).customer("Customer " + i).customerEmail("customer" + i + "@mail.com")
+                    .book(book).loanDate(LocalDate.now()).build());
+        }
+    }
+
+    @Benchmark
+    public BookDTO bookRoundTripModelMapper(){
+        Book entity = modelMapper.map(bookDTO, Book.class);
+        return modelMapper.map(entity, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookRoundTripMapStruct(){
+        Book entity = bookMapper.toEntity(bookDTO);
+        return bookMapper.toDto(entity);
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageModelMapper(){
+        return loans.stream().map(entity -> {
+            BookDTO dto = modelMapper.map(entity.getBook(), BookDTO.class);
+            LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
+            loanDTO.setBook(dto);
+            return loanDTO;
+        }).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageMapStruct(){
+        return loans.stream().map(loanMapper::toDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,51 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.LoanDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the {@code Page<LoanDTO>} that {@code GET /api/loans} returns, with the Jackson settings Spring MVC uses,
+ * so the serialization share of a listing can be told apart from the query and the mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "200"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Page<LoanDTO> page;
+
+    @Setup
+    public void setup(){
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<LoanDTO> loans = new ArrayList<>();
+        for (long i = 0; i < pageSize; i++) {
+            BookDTO book = BookDTO.builder().id(i).title("Title " + i).author("Author " + i).isbn("isbn-" + i).build();
+            loans.add(LoanDTO.builder().id(i).isbn(book.getIsbn()).customer("Customer " + i)
+                    .email("customer" + i + "@mail.com").book(book).build());
+        }
+        page = new PageImpl<>(loans, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public byte[] loanPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
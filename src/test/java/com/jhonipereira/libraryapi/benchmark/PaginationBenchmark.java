@@ -0,0 +1,70 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset pages (page + count) against keyset pages at increasing depths of the book catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"200000"})
+    private int books;
+
+    @Param({"100", "5000", "9900"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private Long after;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        bookService = context.getBean(BookService.class);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("insert into book (title, author, isbn) " +
+                "select 'Title ' || x, 'Author ' || mod(x, 1000), 'isbn-' || x from system_range(1, ?)", books);
+
+        Page<BookSummary> offsetPage = bookService.find(new Book(), PageRequest.of(page, PAGE_SIZE));
+        after = offsetPage.getContent().get(0).id() - 1;
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Page<BookSummary> offset(){
+        return bookService.find(new Book(), PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<BookSummary> keyset(){
+        return bookService.findAfter(new Book(), after, PAGE_SIZE + 1);
+    }
+}
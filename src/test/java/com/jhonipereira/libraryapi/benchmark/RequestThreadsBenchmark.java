@@ -0,0 +1,88 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent requests against the platform thread and virtual thread request modes while every query
+ * waits {@code queryLatencyMillis}, standing in for a slow database. Tomcat gets fewer threads than the
+ * connection pool has connections, so the platform mode is capped by its thread count.
+ * Throughput and the sampled latency percentiles (p0.99) come out of the same run.
+ *
+ * <p>The virtual mode needs a build and runtime on Java 21: {@code mvn -Pbenchmark,java21 ...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Threads(100)
+@Fork(1)
+public class RequestThreadsBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"20"})
+    private int tomcatThreads;
+
+    @Param({"100"})
+    private int poolSize;
+
+    @Param({"10"})
+    private long queryLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setup(){
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("the virtual mode needs Java 21 and the java21 profile");
+        }
+
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(SlowQueries.latency(queryLatencyMillis)))
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + tomcatThreads,
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--application.threads.virtual.enabled=" + virtual);
+        if (virtual && !context.containsBean("virtualThreadProtocolHandlerCustomizer")) {
+            throw new IllegalStateException("virtual threads are not on the classpath, build with -Pjava21");
+        }
+
+        context.getBean(JdbcTemplate.class).update("insert into book (title, author, isbn) " +
+                "select 'Title ' || x, 'Author ' || mod(x, 100), 'isbn-' || x from system_range(1, 1000)");
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?after=&size=10"))
+                .GET().build();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public int findBooks() throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("unexpected status " + response.statusCode());
+        }
+        return response.body().length();
+    }
+}
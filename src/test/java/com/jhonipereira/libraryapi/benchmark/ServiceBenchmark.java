@@ -0,0 +1,106 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.api.dto.LoanFilterDTO;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.BookService;
+import com.jhonipereira.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The book and loan service calls behind the busiest endpoints, against an H2 database seeded with
+ * {@code dataset} books; the first half of them are on loan, about half of those loans overdue.
+ * {@code -Djmh.dataset=1000,100000} on the benchmark profile runs every method at both sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"10000"})
+    private int dataset;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbc;
+    private BookService bookService;
+    private LoanService loanService;
+
+    private int loanedBooks;
+    private long savedBooks;
+    private long nextFreeBook;
+
+    @Setup
+    public void setup(){
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                // the outbox only piles up: relaying it would measure the mail server along with the services
+                .run("--application.mail.outbox.poll-delay-millis=3600000");
+        jdbc = context.getBean(JdbcTemplate.class);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+
+        loanedBooks = dataset / 2;
+        jdbc.update("insert into book (title, author, isbn) " +
+                "select 'Title ' || x, 'Author ' || mod(x, 1000), 'isbn-' || x from system_range(1, ?)", dataset);
+        // the rows above took identity ids, so the pooled ids used by JPA inserts have to start after them
+        jdbc.execute("alter sequence book_seq restart with (select max(id) + 50 from book)");
+        jdbc.update("insert into loan (customer, customer_email, id_book, loan_date, returned, open_book) " +
+                "select 'Customer ' || x, 'customer' || x || '@mail.com', x, dateadd('DAY', -mod(x, 10), current_date), false, x " +
+                "from system_range(1, ?)", loanedBooks);
+        nextFreeBook = loanedBooks + 1;
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public Book bookSave(){
+        savedBooks++;
+        return bookService.save(Book.builder().title("Saved " + savedBooks).author("Author").isbn("saved-" + savedBooks).build());
+    }
+
+    @Benchmark
+    public Page<BookSummary> bookFind(){
+        return bookService.find(Book.builder().title("Title 42").build(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Loan loanSave(){
+        if (nextFreeBook > dataset) {
+            // every free book is on loan: return the loans this method made and start over
+            jdbc.update("update loan set returned = true, open_book = null where id > ? and open_book is not null", loanedBooks);
+            nextFreeBook = loanedBooks + 1;
+        }
+        // a detached reference instead of a read; Hibernate rejects one without a version
+        Loan loan = Loan.builder().book(Book.builder().id(nextFreeBook++).version(0L).build())
+                .customer("John").customerEmail("john@mail.com").loanDate(LocalDate.now()).build();
+        return loanService.save(loan);
+    }
+
+    @Benchmark
+    public Page<Loan> loanFind(){
+        return loanService.find(LoanFilterDTO.builder().isbn("isbn-42").customer("Customer 4242").build(), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<Loan> getAllDueLoans(){
+        return loanService.getAllDueLoans();
+    }
+}
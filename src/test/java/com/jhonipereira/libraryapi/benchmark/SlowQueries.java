@@ -0,0 +1,55 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Wraps the application {@link DataSource} so every prepared query waits a fixed latency,
+ * standing in for a database that is slower than the in-memory H2.
+ */
+final class SlowQueries {
+
+    private SlowQueries(){
+    }
+
+    static BeanPostProcessor latency(long latencyMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        return proxy(Connection.class, super.getConnection(), latencyMillis);
+                    }
+                };
+            }
+        };
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, long latencyMillis) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                    return proxy(PreparedStatement.class, statement, latencyMillis);
+                }
+                if (method.getName().equals("executeQuery") && type == PreparedStatement.class) {
+                    Thread.sleep(latencyMillis);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+}
@@ -0,0 +1,143 @@
+package com.jhonipereira.libraryapi.benchmark;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bursts of {@code clients} concurrent requests against the servlet and the reactive deployment, with every
+ * query waiting {@code queryLatencyMillis}. Besides the time per burst it reports the peak number of server
+ * threads (Tomcat workers, or Netty event loops plus the bounded elastic pool running the JPA services),
+ * the peak of pooled database connections in use and the requests that failed. JMH adds these counters up
+ * across measurement iterations, so there is a single one and the peaks stay peaks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 1, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+public class WebStackBenchmark {
+
+    private static final String[] SERVER_THREADS = {"http-nio-", "reactor-http-", "boundedElastic-"};
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    @Param({"10000"})
+    private int clients;
+
+    @Param({"10"})
+    private long queryLatencyMillis;
+
+    @Param({"50"})
+    private int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private HikariDataSource hikari;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private List<HttpRequest> requests;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Usage {
+        public long serverThreads;
+        public long dbConnections;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset(){
+            serverThreads = 0;
+            dbConnections = 0;
+            failures = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(SlowQueries.latency(queryLatencyMillis)))
+                .run("--server.port=0",
+                        "--spring.main.web-application-type=" + stack,
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--server.tomcat.max-connections=" + (clients + 100));
+        hikari = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        requests = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Book book = bookRepository.save(Book.builder().title("Title " + i).author("Author").isbn("isbn-" + i).build());
+            requests.add(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/" + book.getId() + "/loans?page=0&size=10"))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET().build());
+        }
+
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+    }
+
+    @TearDown
+    public void tearDown(){
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst(Usage usage) throws Exception {
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            usage.serverThreads = Math.max(usage.serverThreads, serverThreads());
+            usage.dbConnections = Math.max(usage.dbConnections, hikari.getHikariPoolMXBean().getActiveConnections());
+        }, 0, 5, TimeUnit.MILLISECONDS);
+
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            responses[i] = client.sendAsync(requests.get(i % requests.size()), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+
+        sampler.shutdownNow();
+        usage.failures += failures.get();
+        return failures.get();
+    }
+
+    private static int serverThreads() {
+        int count = 0;
+        for (ThreadInfo info : ManagementFactory.getThreadMXBean().dumpAllThreads(false, false)) {
+            for (String prefix : SERVER_THREADS) {
+                if (info.getThreadName().startsWith(prefix)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,231 @@
+package com.jhonipereira.libraryapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.service.FakeJavaMailSender;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the mixed {@link Workload} against the application booted on H2 with {@code loadtest.books} synthetic books,
+ * then compares the latency percentiles and throughput of each operation with a stored baseline.
+ * <p>
+ * Requests are sent at a fixed rate whatever the response times, with at most {@code loadtest.concurrency} in flight.
+ * Each latency is measured from the moment the request was due, not from when it was sent, so a stalled server
+ * shows up in the percentiles instead of quietly lowering the load (coordinated omission).
+ * <p>
+ * Exits with 1 when an operation regressed, so the {@code loadtest} profile fails the build. The baseline depends
+ * on the machine: regenerate it where the check runs with {@code -Dloadtest.update-baseline=true}.
+ */
+public class LoadTest {
+
+    // one minute, in microseconds, at three significant digits
+    private static final long HIGHEST_LATENCY = 60_000_000L;
+
+    record Result(String operation, long count, long errors, double throughput,
+                  double p50, double p99, double p999, double max) {
+    }
+
+    /**
+     * What shapes the numbers; results are only compared with a baseline taken with the same settings.
+     */
+    record Settings(String stack, int rate, int concurrency, int books, String mix) {
+    }
+
+    record Report(Settings settings, List<Result> operations) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 20);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+        Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT20S"));
+        Duration duration = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+        int books = Integer.getInteger("loadtest.books", 10_000);
+        String stack = System.getProperty("loadtest.stack", "servlet");
+        String mixSpec = System.getProperty("loadtest.mix", "createBook:10,createLoan:20,returnLoan:20,listBooks:50");
+        Map<String, Integer> mix = Workload.mix(mixSpec);
+        Settings settings = new Settings(stack, rate, concurrency, books, mixSpec);
+        File resultFile = new File(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+        File baselineFile = new File(System.getProperty("loadtest.baseline", "src/test/loadtest/baseline.json"));
+        boolean updateBaseline = Boolean.getBoolean("loadtest.update-baseline");
+        double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "1.0"));
+        double slackMillis = Double.parseDouble(System.getProperty("loadtest.slack-millis", "10"));
+        // the mix is drawn at random, so the share of a rare operation moves by a few percent between runs
+        double throughputTolerance = Double.parseDouble(System.getProperty("loadtest.throughput-tolerance", "0.3"));
+        double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+        Map<String, Result> results;
+        ConfigurableApplicationContext context = boot(stack);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        try {
+            seed(context.getBean(JdbcTemplate.class), books);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Workload workload = new Workload("http://localhost:" + port, books, mix);
+            HttpClient client = HttpClient.newBuilder().executor(clientExecutor).build();
+
+            System.out.printf("%s stack, %d requests/s, at most %d in flight, warming up for %s%n",
+                    stack, rate, concurrency, warmup);
+            run(client, workload, rate, concurrency, warmup);
+            System.out.printf("measuring for %s%n", duration);
+            results = run(client, workload, rate, concurrency, duration);
+        } finally {
+            clientExecutor.shutdownNow();
+            context.close();
+        }
+
+        print(results);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Report report = new Report(settings, new ArrayList<>(results.values()));
+        resultFile.getAbsoluteFile().getParentFile().mkdirs();
+        objectMapper.writeValue(resultFile, report);
+        System.out.println("results written to " + resultFile);
+
+        if (updateBaseline) {
+            baselineFile.getAbsoluteFile().getParentFile().mkdirs();
+            objectMapper.writeValue(baselineFile, report);
+            System.out.println("baseline updated: " + baselineFile);
+            return;
+        }
+        if (!baselineFile.exists()) {
+            System.out.println("no baseline at " + baselineFile + ", nothing to compare");
+            return;
+        }
+        Report baseline = objectMapper.readValue(baselineFile, Report.class);
+        if (!baseline.settings().equals(settings)) {
+            System.out.println("baseline " + baselineFile + " was taken with " + baseline.settings() + ", not comparable");
+            return;
+        }
+        Map<String, Result> before = new TreeMap<>();
+        baseline.operations().forEach(result -> before.put(result.operation(), result));
+        List<String> regressions = regressions(before, results, tolerance, slackMillis, throughputTolerance, maxErrorRate);
+        regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+        if (!regressions.isEmpty()) {
+            System.exit(1);
+        }
+        System.out.println("no regression against " + baselineFile);
+    }
+
+    /**
+     * An operation regressed when it failed too often, when its p99 went past the baseline by more than the
+     * tolerance plus a fixed slack (small latencies are noisy), or when its throughput dropped by more than the
+     * throughput tolerance, which at a fixed offered rate means the server fell behind.
+     */
+    static List<String> regressions(Map<String, Result> baseline, Map<String, Result> current, double tolerance,
+                                    double slackMillis, double throughputTolerance, double maxErrorRate) {
+        List<String> regressions = new ArrayList<>();
+        for (Result result : current.values()) {
+            if (result.errors() > result.count() * maxErrorRate) {
+                regressions.add(String.format("%s: %d of %d requests failed", result.operation(), result.errors(), result.count()));
+            }
+            Result before = baseline.get(result.operation());
+            if (before == null) {
+                continue;
+            }
+            if (result.p99() > before.p99() * (1 + tolerance) + slackMillis) {
+                regressions.add(String.format("%s: p99 %.2f ms, baseline %.2f ms", result.operation(), result.p99(), before.p99()));
+            }
+            if (result.throughput() < before.throughput() * (1 - throughputTolerance)) {
+                regressions.add(String.format("%s: %.1f requests/s, baseline %.1f", result.operation(), result.throughput(), before.throughput()));
+            }
+        }
+        return regressions;
+    }
+
+    private static ConfigurableApplicationContext boot(String stack) {
+        // devtools is on the test classpath; its restart classloader would run the server apart from this class
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        return new SpringApplicationBuilder(LibraryApiApplication.class)
+                // loans send mail through the outbox; deliver it in memory instead of to the configured server
+                .initializers(context -> context.getBeanFactory().registerSingleton("mailSender", new FakeJavaMailSender()))
+                .run("--server.port=0",
+                        "--spring.main.web-application-type=" + stack,
+                        "--logging.level.root=WARN");
+    }
+
+    private static void seed(JdbcTemplate jdbc, int books) {
+        jdbc.update("insert into book (title, author, isbn) " +
+                "select 'Title ' || x, 'Author ' || mod(x, 1000), 'isbn-' || x from system_range(1, ?)", books);
+        // the rows above took identity ids, so the pooled ids used by JPA inserts have to start after them
+        jdbc.execute("alter sequence book_seq restart with (select max(id) + 50 from book)");
+    }
+
+    private static Map<String, Result> run(HttpClient client, Workload workload, int rate, int concurrency,
+                                           Duration duration) throws InterruptedException {
+        Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+        Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long interval = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        for (long due = start; due < end; due += interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            long dueAt = due;
+            Workload.Call call = workload.next();
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+                try {
+                    long latency = Math.min((System.nanoTime() - dueAt) / 1000, HIGHEST_LATENCY);
+                    histograms.computeIfAbsent(call.operation(), operation -> new ConcurrentHistogram(HIGHEST_LATENCY, 3))
+                            .recordValue(latency);
+                    if (error != null || response.statusCode() >= 400) {
+                        errors.computeIfAbsent(call.operation(), operation -> new AtomicLong()).incrementAndGet();
+                    } else {
+                        call.onSuccess().accept(response);
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(concurrency);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Result> results = new TreeMap<>();
+        histograms.forEach((operation, histogram) -> results.put(operation, new Result(operation,
+                histogram.getTotalCount(),
+                errors.getOrDefault(operation, new AtomicLong()).get(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()))));
+        return results;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void print(Map<String, Result> results) {
+        System.out.printf("%-12s %8s %7s %10s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Result result : results.values()) {
+            System.out.printf("%-12s %8d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", result.operation(), result.count(),
+                    result.errors(), result.throughput(), result.p50(), result.p99(), result.p999(), result.max());
+        }
+    }
+}
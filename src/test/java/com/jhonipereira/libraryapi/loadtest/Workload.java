@@ -0,0 +1,142 @@
+package com.jhonipereira.libraryapi.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The requests of the mixed workload and the state that keeps them valid: books that are free to loan and loans
+ * that are open to return. An operation with nothing to work on (no free book, no open loan) falls back to a list,
+ * so the offered rate stays the same whatever the mix.
+ */
+final class Workload {
+
+    static final String CREATE_BOOK = "createBook";
+    static final String CREATE_LOAN = "createLoan";
+    static final String RETURN_LOAN = "returnLoan";
+    static final String LIST_BOOKS = "listBooks";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * One request on its way: the operation it is recorded under and what to do with a successful response.
+     */
+    record Call(String operation, HttpRequest request, ResponseHandler onSuccess) {
+    }
+
+    interface ResponseHandler {
+        void accept(HttpResponse<String> response);
+    }
+
+    private record OpenLoan(long id, String isbn) {
+    }
+
+    private final String baseUrl;
+    private final int seededBooks;
+    private final Map<String, Integer> mix;
+    private final int totalWeight;
+
+    private final Queue<String> freeBooks = new ConcurrentLinkedQueue<>();
+    private final Queue<OpenLoan> openLoans = new ConcurrentLinkedQueue<>();
+    private final AtomicLong createdBooks = new AtomicLong();
+
+    Workload(String baseUrl, int seededBooks, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.seededBooks = seededBooks;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        for (int i = 1; i <= seededBooks; i++) {
+            freeBooks.add("isbn-" + i);
+        }
+    }
+
+    /**
+     * Parses a mix such as {@code createBook:10,createLoan:20,returnLoan:20,listBooks:50} into relative weights.
+     */
+    static Map<String, Integer> mix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String operation = parts[0].trim();
+            if (!operation.equals(CREATE_BOOK) && !operation.equals(CREATE_LOAN)
+                    && !operation.equals(RETURN_LOAN) && !operation.equals(LIST_BOOKS)) {
+                throw new IllegalArgumentException("unknown operation in mix: " + operation);
+            }
+            mix.put(operation, Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    Call next() {
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return call(entry.getKey());
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    private Call call(String operation) {
+        switch (operation) {
+            case CREATE_BOOK:
+                return createBook();
+            case CREATE_LOAN:
+                String isbn = freeBooks.poll();
+                return isbn == null ? listBooks() : createLoan(isbn);
+            case RETURN_LOAN:
+                OpenLoan loan = openLoans.poll();
+                return loan == null ? listBooks() : returnLoan(loan);
+            default:
+                return listBooks();
+        }
+    }
+
+    private Call createBook() {
+        String isbn = "load-" + createdBooks.incrementAndGet();
+        String body = "{\"title\":\"Load Test " + isbn + "\",\"author\":\"Load Tester\",\"isbn\":\"" + isbn + "\"}";
+        return new Call(CREATE_BOOK, post("/api/books", body), response -> freeBooks.add(isbn));
+    }
+
+    private Call createLoan(String isbn) {
+        String body = "{\"isbn\":\"" + isbn + "\",\"customer\":\"Load Tester\",\"email\":\"load@tester.com\"}";
+        return new Call(CREATE_LOAN, post("/api/loans", body),
+                response -> openLoans.add(new OpenLoan(Long.parseLong(response.body().trim()), isbn)));
+    }
+
+    private Call returnLoan(OpenLoan loan) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/loans/" + loan.id()))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"returned\":true}"))
+                .build();
+        return new Call(RETURN_LOAN, request, response -> freeBooks.add(loan.isbn()));
+    }
+
+    private Call listBooks() {
+        // a prefix of the seeded titles: "Title 12" matches Title 12, 120-129, 1200-1299 and so on
+        int title = 1 + ThreadLocalRandom.current().nextInt(Math.min(seededBooks, 100));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/books?title=Title%20" + title + "&page=0&size=20"))
+                .timeout(TIMEOUT)
+                .GET()
+                .build();
+        return new Call(LIST_BOOKS, request, response -> {
+        });
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
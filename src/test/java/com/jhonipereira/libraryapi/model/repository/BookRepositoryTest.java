@@ -1,15 +1,21 @@
 package com.jhonipereira.libraryapi.model.repository;
 
 import com.jhonipereira.libraryapi.model.entity.Book;
+import org.hibernate.Session;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -24,6 +30,9 @@ public class BookRepositoryTest {
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     @DisplayName("should return true when a book exists in DB with the ISBN")
     public void returnTrueWhenISBNExists(){
@@ -91,4 +100,49 @@ public class BookRepositoryTest {
         Book deleted = entityManager.find(Book.class, book.getId() );
         assertThat(deleted).isNull();
     }
+
+    @Test
+    @DisplayName("should seek books after an id ordered by id")
+    public void findAfterTest(){
+        Book first = createBook();
+        Book second = Book.builder().title("Arthur's return").isbn("456").author("Arthur").build();
+        Book other = Book.builder().title("Other").isbn("789").author("Someone").build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(other);
+
+        List<BookSummary> result = repository.findAfter(first.getId(), "arthur", null, null, PageRequest.of(0, 10));
+
+        assertThat(result).containsExactly(new BookSummary(second.getId(), "Arthur's return", "Arthur", "456"));
+        assertThat(repository.findAfter(first.getId(), null, null, null, PageRequest.of(0, 1)))
+                .extracting(BookSummary::id).containsExactly(second.getId());
+        assertThat(repository.findAfter(0L, "100%", null, null, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should page book summaries without loading entities into the persistence context")
+    public void findSummariesTest(){
+        Book first = createBook();
+        Book second = Book.builder().title("Arthur's return").isbn("456").author("Arthur").build();
+        Book other = Book.builder().title("Other").isbn("789").author("Someone").build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(other);
+        entityManager.flush();
+        entityManager.clear();
+
+        Page<BookSummary> result = repository.findSummaries(null, "ARTHUR", null, PageRequest.of(0, 1, Sort.by("id")));
+
+        assertThat(result.getTotalElements()).isEqualTo(2);
+        assertThat(result.getContent()).containsExactly(new BookSummary(first.getId(), "King Arthur", "Arthur", "123"));
+        assertThat(entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should look up a book by ISBN through the unique index")
+    public void findByIsbnUsesIndexTest(){
+        String plan = jdbcTemplate.queryForObject("explain select b.id from book b where b.isbn = '123'", String.class);
+
+        assertThat(plan).containsIgnoringCase("UK_BOOK_ISBN").doesNotContainIgnoringCase("tableScan");
+    }
 }
@@ -2,26 +2,34 @@ package com.jhonipereira.libraryapi.model.repository;
 
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static com.jhonipereira.libraryapi.api.resource.BookControllerTest.createNewBookStatic;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
 
     @Autowired
@@ -30,6 +38,9 @@ public class LoanRepositoryTest {
     @Autowired
     private LoanRepository repository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     @DisplayName("should verify if loan exists, and the book is not returned")
     public void existsByBookAndNotReturnedTest(){
@@ -96,4 +107,177 @@ public class LoanRepositoryTest {
 
         assertThat(result).isEmpty();
     }
+
+    @Test
+    @DisplayName("should load a page of loans and their books with a constant number of statements")
+    public void findByBookIsbnOrCustomerStatementCountTest(){
+        for (int i = 0; i < 60; i++) {
+            Book book = Book.builder().title("Title " + i).author("Author").isbn("isbn-" + i).build();
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).build());
+        }
+
+        long smallPage = countStatements(() -> repository.findByBookIsbnOrCustomer("000", "John", PageRequest.of(0, 5)));
+        long largePage = countStatements(() -> repository.findByBookIsbnOrCustomer("000", "John", PageRequest.of(0, 50)));
+
+        assertThat(smallPage).isEqualTo(2);
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    @DisplayName("should load a page of loans by book with a constant number of statements")
+    public void findByBookStatementCountTest(){
+        Book book = createNewBookStatic();
+        entityManager.persist(book);
+        for (int i = 0; i < 60; i++) {
+            entityManager.persist(Loan.builder().book(book).customer("John " + i).loanDate(LocalDate.now()).returned(true).build());
+        }
+
+        long smallPage = countStatements(() -> repository.findByBook(book, PageRequest.of(0, 5)));
+        long largePage = countStatements(() -> repository.findByBook(book, PageRequest.of(0, 50)));
+
+        assertThat(smallPage).isEqualTo(2);
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    @DisplayName("should reject a second open loan of a book until the first is returned")
+    public void openLoanUniquePerBookTest(){
+        Book book = createNewBookStatic();
+        entityManager.persist(book);
+        Loan first = repository.saveAndFlush(Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).build());
+
+        Throwable exception = catchThrowable(() ->
+                repository.saveAndFlush(Loan.builder().book(book).customer("Mary").loanDate(LocalDate.now()).build()));
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
+        entityManager.clear();
+
+        first.setReturned(true);
+        repository.saveAndFlush(first);
+        Loan second = repository.saveAndFlush(Loan.builder().book(book).customer("Mary").loanDate(LocalDate.now()).build());
+
+        assertThat(second.getId()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should return a loan in one statement only at the expected version")
+    public void updateReturnedTest(){
+        Book book = createNewBookStatic();
+        entityManager.persist(book);
+        Loan loan = repository.saveAndFlush(Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).build());
+        Long version = loan.getVersion();
+
+        int stale = repository.updateReturned(loan.getId(), true, version + 1);
+        int updated = repository.updateReturned(loan.getId(), true, version);
+
+        assertThat(stale).isZero();
+        assertThat(updated).isOne();
+        Loan returned = repository.findById(loan.getId()).get();
+        assertThat(returned.getReturned()).isTrue();
+        assertThat(returned.getVersion()).isEqualTo(version + 1);
+        assertThat(jdbcTemplate.queryForObject("select open_book from loan where id = ?", Long.class, loan.getId())).isNull();
+
+        Loan second = repository.saveAndFlush(Loan.builder().book(book).customer("Mary").loanDate(LocalDate.now()).build());
+        assertThat(second.getId()).isNotNull();
+        Throwable reopened = catchThrowable(() -> repository.updateReturned(loan.getId(), false, null));
+        assertThat(reopened).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("should seek loans by book isbn or customer after an id")
+    public void findByBookIsbnOrCustomerAfterTest(){
+        Book book = createNewBookStatic();
+        entityManager.persist(book);
+
+        Loan first = Loan.builder().book(book).customer("John").customerEmail("john@email.com").loanDate(LocalDate.now()).returned(true).build();
+        Loan second = Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).build();
+        entityManager.persist(first);
+        entityManager.persist(second);
+
+        List<Loan> result = repository.findByBookIsbnOrCustomerAfter(first.getId(), "123", "John", PageRequest.of(0, 10));
+
+        assertThat(result).containsExactly(second);
+    }
+
+    @Test
+    @DisplayName("should seek due loans after an id projecting only id, customer and email")
+    public void findDueLoansAfterTest(){
+        Book book = createNewBookStatic();
+        Book other = createNewBookStatic();
+        other.setIsbn("456");
+        entityManager.persist(book);
+        entityManager.persist(other);
+
+        Loan returned = Loan.builder().book(book).customer("Mary").loanDate(LocalDate.now().minusDays(5)).returned(true).build();
+        Loan first = Loan.builder().book(book).customer("John").customerEmail("john@email.com").loanDate(LocalDate.now().minusDays(5)).build();
+        Loan second = Loan.builder().book(other).customer("Paul").loanDate(LocalDate.now().minusDays(6)).build();
+        entityManager.persist(returned);
+        entityManager.persist(first);
+        entityManager.persist(second);
+
+        LocalDate daysAgo = LocalDate.now().minusDays(4);
+        List<DueLoan> head = repository.findDueLoansAfter(daysAgo, 0L, 0, 1, PageRequest.of(0, 1));
+        List<DueLoan> tail = repository.findDueLoansAfter(daysAgo, head.get(0).getId(), 0, 1, PageRequest.of(0, 1));
+
+        assertThat(head).extracting(DueLoan::getId, DueLoan::getCustomer, DueLoan::getCustomerEmail)
+                .containsExactly(tuple(first.getId(), "John", "john@email.com"));
+        assertThat(tail).extracting(DueLoan::getId, DueLoan::getCustomer, DueLoan::getCustomerEmail)
+                .containsExactly(tuple(second.getId(), "Paul", null));
+        assertThat(repository.findDueLoansAfter(daysAgo, second.getId(), 0, 1, PageRequest.of(0, 1))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should split due loans into disjoint shards by id")
+    public void findDueLoansInShardTest(){
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Book book = createNewBookStatic();
+            book.setIsbn("isbn-" + i);
+            entityManager.persist(book);
+            Loan loan = Loan.builder().book(book).customer("John").loanDate(LocalDate.now().minusDays(5)).build();
+            entityManager.persist(loan);
+            ids.add(loan.getId());
+        }
+
+        LocalDate daysAgo = LocalDate.now().minusDays(4);
+        List<DueLoan> even = repository.findDueLoansAfter(daysAgo, 0L, 0, 2, PageRequest.of(0, 10));
+        List<DueLoan> odd = repository.findDueLoansAfter(daysAgo, 0L, 1, 2, PageRequest.of(0, 10));
+
+        assertThat(even).extracting(DueLoan::getId).allMatch(id -> id % 2 == 0);
+        assertThat(odd).extracting(DueLoan::getId).allMatch(id -> id % 2 == 1);
+        assertThat(even.size() + odd.size()).isEqualTo(4);
+        assertThat(ids).containsAll(even.stream().map(DueLoan::getId).toList());
+        assertThat(ids).containsAll(odd.stream().map(DueLoan::getId).toList());
+    }
+
+    @Test
+    @DisplayName("should check open loans of a book through the book index")
+    public void existsByBookAndNotReturnedUsesIndexTest(){
+        String plan = jdbcTemplate.queryForObject("explain select count(l.id) from loan l " +
+                "where l.id_book = 1 and (l.returned is null or l.returned is false)", String.class);
+
+        assertThat(plan).containsIgnoringCase("IDX_LOAN_BOOK_RETURNED").doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    @DisplayName("should search due loans through the loan date index")
+    public void findByLoanDateLessThanAndNotReturnedUsesIndexTest(){
+        String plan = jdbcTemplate.queryForObject("explain select l.id from loan l " +
+                "where l.loan_date <= date '2020-01-01' and (l.returned is null or l.returned is false)", String.class);
+
+        assertThat(plan).containsIgnoringCase("IDX_LOAN_DATE_RETURNED").doesNotContainIgnoringCase("tableScan");
+    }
+
+    private long countStatements(Supplier<Page<Loan>> query){
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<Loan> result = query.get();
+        result.getContent().forEach(loan -> loan.getBook().getTitle());
+
+        return statistics.getPrepareStatementCount();
+    }
 }
@@ -0,0 +1,108 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.api.dto.BookDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO;
+import com.jhonipereira.libraryapi.api.dto.BookImportResultDTO.Status;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "application.books.import.chunk-size=2")
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    @Autowired
+    BookImportService service;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookRepository repository;
+
+    @AfterEach
+    public void cleanUp(){
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should import valid books in chunks and report duplicates and invalid ones")
+    public void importBooksTest(){
+        repository.save(Book.builder().title("Stored").author("Someone").isbn("001").build());
+
+        List<BookDTO> books = Arrays.asList(
+                book("001"),
+                book("002"),
+                book("003"),
+                book("002"),
+                BookDTO.builder().isbn("004").build(),
+                book("005"));
+
+        List<BookImportResultDTO> results = service.importBooks(books.iterator());
+
+        assertThat(results).extracting(BookImportResultDTO::getItem).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                Status.DUPLICATE, Status.CREATED, Status.CREATED, Status.DUPLICATE, Status.INVALID, Status.CREATED);
+        assertThat(results.get(4).getErrors()).containsExactly("author must not be empty", "title must not be empty");
+        assertThat(results.get(1).getId()).isNotNull();
+        assertThat(repository.count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should report a book the database rejects as invalid and import the rest")
+    public void importRejectedByDatabaseTest(){
+        List<BookDTO> books = Arrays.asList(
+                book("020"),
+                book("021"),
+                BookDTO.builder().title("T".repeat(256)).author("Author").isbn("022").build(),
+                book("023"),
+                book("024"));
+
+        List<BookImportResultDTO> results = service.importBooks(books.iterator());
+
+        assertThat(results).extracting(BookImportResultDTO::getStatus).containsExactly(
+                Status.CREATED, Status.CREATED, Status.INVALID, Status.CREATED, Status.CREATED);
+        assertThat(results.get(2).getErrors()).containsExactly("Rejected by the database.");
+        assertThat(repository.findIsbnsIn(Set.of("020", "021", "022", "023", "024")))
+                .containsExactlyInAnyOrder("020", "021", "023", "024");
+    }
+
+    @Test
+    @DisplayName("should forget a cached missing isbn once it is imported")
+    public void importEvictsIsbnCacheTest(){
+        assertThat(bookService.getBookByIsbn("010")).isEmpty();
+
+        service.importBooks(List.of(book("010")).iterator());
+
+        assertThat(bookService.getBookByIsbn("010")).isPresent();
+    }
+
+    @Test
+    @DisplayName("should forget a cached missing id once a book is imported under it")
+    public void importEvictsIdCacheTest(){
+        // ids come from the pooled book_seq in order, so the next book takes the one after this
+        Long next = repository.save(Book.builder().title("Stored").author("Someone").isbn("011").build()).getId() + 1;
+        assertThat(bookService.getById(next)).isEmpty();
+
+        List<BookImportResultDTO> results = service.importBooks(List.of(book("012")).iterator());
+
+        assertThat(results.get(0).getId()).isEqualTo(next);
+        assertThat(bookService.getById(next)).map(Book::getIsbn).contains("012");
+    }
+
+    private static BookDTO book(String isbn){
+        return BookDTO.builder().title("Title " + isbn).author("Author").isbn(isbn).build();
+    }
+}
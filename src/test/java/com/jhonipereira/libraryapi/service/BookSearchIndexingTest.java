@@ -0,0 +1,73 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.jhonipereira.libraryapi.service.BookSearchServiceTest.await;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class BookSearchIndexingTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookSearchService searchService;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void cleanUp(){
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should index books saved, updated and deleted through JPA once committed")
+    public void captureChangesTest(){
+        Book book = bookService.save(Book.builder().title("Quixotic Voyage").author("Miguel").isbn("q-1").build());
+        await(() -> ids("quixotic").contains(book.getId()));
+
+        book.setTitle("Melancholic Voyage");
+        Book updated = bookService.update(book);
+        await(() -> ids("melancholic").contains(book.getId()));
+        assertThat(ids("quixotic")).isEmpty();
+
+        bookService.delete(updated);
+        await(() -> ids("melancholic").isEmpty());
+    }
+
+    @Test
+    @DisplayName("should not index a book whose transaction rolled back")
+    public void rollbackTest(){
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.saveAndFlush(Book.builder().title("Phantom Atlas").author("Nobody").isbn("p-1").build());
+            status.setRollbackOnly();
+        });
+        Book committed = repository.save(Book.builder().title("Phantom Compass").author("Somebody").isbn("p-2").build());
+
+        // changes are applied in order, so once the later book is searchable the rolled back one would be too
+        await(() -> ids("phantom").contains(committed.getId()));
+        assertThat(ids("phantom")).containsExactly(committed.getId());
+    }
+
+    private List<Long> ids(String query){
+        return searchService.search(query, PageRequest.of(0, 10)).getContent().stream().map(BookSummary::id).toList();
+    }
+}
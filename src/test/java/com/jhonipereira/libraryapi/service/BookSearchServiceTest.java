@@ -0,0 +1,166 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.exception.BusinessException;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
+import com.jhonipereira.libraryapi.service.impl.BookSearchServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookSearchServiceTest {
+
+    @MockBean
+    BookRepository repository;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    BookSearchServiceImpl service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        List<BookSummary> books = List.of(
+                book(1L, "Arthur's Legacy", "Mary Stone"),
+                book(2L, "The Round Table", "Arthur Smith"),
+                book(3L, "King Arthur", "John Doe"),
+                book(4L, "Artisan Bread", "Paul Baker"),
+                book(5L, "Gardening", "Ann Green"));
+        Mockito.when(repository.findMaxId()).thenReturn(5L);
+        Mockito.when(repository.findSummariesBetween(Mockito.anyLong(), Mockito.anyLong())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            long upTo = invocation.getArgument(1);
+            return books.stream().filter(b -> b.id() > after && b.id() <= upTo).collect(Collectors.toList());
+        });
+
+        service = new BookSearchServiceImpl(repository, meterRegistry, 100, 50, 2, 2, 100);
+        service.open();
+        assertThat(service.rebuild()).isEqualTo(5);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException, InterruptedException {
+        service.close();
+    }
+
+    @Test
+    @DisplayName("should rebuild from id ranges read in parallel")
+    public void rebuildTest(){
+        Mockito.verify(repository).findSummariesBetween(0L, 2L);
+        Mockito.verify(repository).findSummariesBetween(2L, 4L);
+        Mockito.verify(repository).findSummariesBetween(4L, 6L);
+        assertThat(service.search("arthur", PageRequest.of(0, 10)).getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should refuse pages past the first max-results hits")
+    public void deepPageTest(){
+        assertThat(service.search("arthur", PageRequest.of(9, 10)).getContent()).isEmpty();
+
+        assertThatThrownBy(() -> service.search("arthur", PageRequest.of(10, 10)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Search results are limited to the first 100, narrow the query.");
+        assertThatThrownBy(() -> service.search("arthur", PageRequest.of(Integer.MAX_VALUE, 100)))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    @DisplayName("should rank title words before author words before prefixes")
+    public void rankingTest(){
+        Page<BookSummary> result = service.search("arthur", PageRequest.of(0, 10));
+
+        // "arthur's" is a single token, so the legacy only matches as a prefix
+        assertThat(result.getContent()).extracting(BookSummary::id).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    @DisplayName("should match word prefixes and require every word")
+    public void prefixTest(){
+        assertThat(service.search("art", PageRequest.of(0, 10)).getContent())
+                .extracting(BookSummary::id).containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+        assertThat(service.search("KING art", PageRequest.of(0, 10)).getContent())
+                .containsExactly(book(3L, "King Arthur", "John Doe"));
+    }
+
+    @Test
+    @DisplayName("should page through the ranked hits")
+    public void paginationTest(){
+        Page<BookSummary> first = service.search("art", PageRequest.of(0, 3));
+        Page<BookSummary> second = service.search("art", PageRequest.of(1, 3));
+
+        assertThat(first.getTotalElements()).isEqualTo(4);
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(second.getContent()).hasSize(1).doesNotContainAnyElementsOf(first.getContent());
+    }
+
+    @Test
+    @DisplayName("should apply queued changes in the background, the last change of a book winning")
+    public void keepInSyncTest(){
+        service.index(book(6L, "Arthurian Tales", "Someone"));
+        service.index(book(3L, "Queen Guinevere", "John Doe"));
+        service.index(book(7L, "Draft", "Someone"));
+        service.remove(1L);
+        service.remove(7L);
+
+        await(() -> service.appliedCount() == 5);
+
+        assertThat(service.search("arthur", PageRequest.of(0, 10)).getContent())
+                .extracting(BookSummary::id).containsExactlyInAnyOrder(2L, 6L);
+        assertThat(service.search("guinevere", PageRequest.of(0, 10)).getContent())
+                .extracting(BookSummary::id).containsExactly(3L);
+        assertThat(service.search("draft", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should publish the index lag and the pending changes")
+    public void lagMetricTest(){
+        service.index(book(6L, "Arthurian Tales", "Someone"));
+        await(() -> service.appliedCount() == 1);
+
+        assertThat(meterRegistry.get("search.index.lag").gauge().value()).isZero();
+        assertThat(meterRegistry.get("search.index.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("should return an empty page for a blank query")
+    public void blankQueryTest(){
+        assertThat(service.search("  ", PageRequest.of(0, 10))).isEmpty();
+        assertThat(service.search("!!", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    static void await(BooleanSupplier condition){
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static BookSummary book(Long id, String title, String author) {
+        return new BookSummary(id, title, author, "isbn-" + id);
+    }
+}
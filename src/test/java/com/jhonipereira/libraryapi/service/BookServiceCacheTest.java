@@ -0,0 +1,213 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.config.CacheConfig;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@ContextConfiguration(classes = {CacheConfig.class, BookServiceImpl.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+@TestPropertySource(properties = {
+        "spring.cache.type=caffeine",
+        "spring.cache.cache-names=books,booksByIsbn",
+        "spring.cache.caffeine.spec=maximumSize=100,expireAfterWrite=1m"
+})
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp(){
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("should read a book by id from the database only once")
+    public void getByIdCachedTest(){
+        Book book = Book.builder().id(11L).isbn("123").build();
+        when(repository.findById(11L)).thenReturn(Optional.of(book));
+
+        service.getById(11L);
+        Optional<Book> cached = service.getById(11L);
+
+        assertThat(cached).contains(book);
+        verify(repository, times(1)).findById(11L);
+    }
+
+    @Test
+    @DisplayName("should read a book by isbn from the database again after an update")
+    public void getByIsbnEvictedOnUpdateTest(){
+        Book book = Book.builder().id(11L).isbn("123").version(0L).build();
+        when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+
+        service.getBookByIsbn("123");
+        service.update(book);
+        service.getBookByIsbn("123");
+
+        verify(repository, times(2)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("should forget a missing isbn once a book is saved with it")
+    public void missingIsbnEvictedOnSaveTest(){
+        Book book = Book.builder().isbn("123").build();
+        when(repository.findByIsbn("123")).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(book)).thenReturn(book);
+
+        assertThat(service.getBookByIsbn("123")).isEmpty();
+        service.save(book);
+
+        when(repository.findByIsbn("123")).thenReturn(Optional.of(book));
+        assertThat(service.getBookByIsbn("123")).contains(book);
+    }
+
+    @Test
+    @DisplayName("should forget a missing id once a book is saved under it")
+    public void missingIdEvictedOnSaveTest(){
+        Book book = Book.builder().isbn("123").build();
+        when(repository.findById(11L)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(book)).thenReturn(Book.builder().id(11L).isbn("123").build());
+
+        assertThat(service.getById(11L)).isEmpty();
+        service.save(book);
+
+        when(repository.findById(11L)).thenReturn(Optional.of(Book.builder().id(11L).isbn("123").build()));
+        assertThat(service.getById(11L)).map(Book::getId).contains(11L);
+    }
+
+    @Test
+    @DisplayName("should read a book by id from the database again after a delete")
+    public void getByIdEvictedOnDeleteTest(){
+        Book book = Book.builder().id(11L).isbn("123").build();
+        when(repository.findById(11L)).thenReturn(Optional.of(book));
+
+        service.getById(11L);
+        service.delete(book);
+        Mockito.reset(repository);
+        when(repository.findById(11L)).thenReturn(Optional.empty());
+
+        assertThat(service.getById(11L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should cache a copy of the book instead of the loaded entity")
+    public void getByIdCachesCopyTest(){
+        Book loaded = Book.builder().id(11L).isbn("123").title("King Arthur").version(2L).loans(new ArrayList<>()).build();
+        when(repository.findById(11L)).thenReturn(Optional.of(loaded));
+
+        Book cached = service.getById(11L).orElseThrow();
+
+        assertThat(cached).isNotSameAs(loaded);
+        assertThat(cached.getLoans()).isNull();
+        assertThat(cached).extracting(Book::getId, Book::getTitle, Book::getVersion).containsExactly(11L, "King Arthur", 2L);
+        assertThat(service.getById(11L)).containsSame(cached);
+    }
+
+    @Test
+    @DisplayName("should not keep the old book cached when it is read while the update is in flight")
+    public void readDuringUpdateTest() throws Exception {
+        AtomicReference<Book> row = new AtomicReference<>(Book.builder().id(11L).isbn("123").title("Old").build());
+        when(repository.findById(11L)).thenAnswer(invocation -> Optional.of(row.get()));
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch read = new CountDownLatch(1);
+        when(repository.save(any(Book.class))).thenAnswer(invocation -> {
+            saving.countDown();
+            read.await(5, TimeUnit.SECONDS);
+            row.set(invocation.getArgument(0));
+            return row.get();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Book> update = executor.submit(() -> service.update(Book.builder().id(11L).isbn("123").title("New").version(0L).build()));
+            assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(service.getById(11L)).map(Book::getTitle).contains("Old");
+            read.countDown();
+            update.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(service.getById(11L)).map(Book::getTitle).contains("New");
+    }
+
+    @Test
+    @DisplayName("should drop a book loaded before the update committed but cached after its eviction")
+    public void loadOverlappingEvictionTest() throws Exception {
+        AtomicReference<Book> row = new AtomicReference<>(Book.builder().id(11L).isbn("123").title("Old").build());
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        AtomicReference<Thread> updater = new AtomicReference<>();
+        when(repository.findById(11L)).thenAnswer(invocation -> {
+            Book snapshot = row.get();
+            loading.countDown();
+            committed.await(5, TimeUnit.SECONDS);
+            // hand the old row back only once the updater waits on the lock of the key to evict, or is done with it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!(LockSupport.getBlocker(updater.get()) instanceof AbstractQueuedSynchronizer)
+                    && updater.get().isAlive() && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return Optional.of(snapshot);
+        });
+        when(repository.save(any(Book.class))).thenAnswer(invocation -> {
+            row.set(invocation.getArgument(0));
+            committed.countDown();
+            return row.get();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Optional<Book>> read = executor.submit(() -> service.getById(11L));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread update = new Thread(() -> service.update(Book.builder().id(11L).isbn("123").title("New").version(0L).build()));
+            updater.set(update);
+            update.start();
+            assertThat(read.get(5, TimeUnit.SECONDS)).map(Book::getTitle).contains("Old");
+            update.join(5000);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(service.getById(11L)).map(Book::getTitle).contains("New");
+    }
+}
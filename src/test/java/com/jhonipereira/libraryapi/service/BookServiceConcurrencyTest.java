@@ -0,0 +1,115 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.config.CacheConfig;
+import com.jhonipereira.libraryapi.exception.BusinessException;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class BookServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    BookRepository repository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp(){
+        repository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("should keep serving the cached book until the transaction updating it commits")
+    public void evictAfterCommitTest(){
+        Book book = service.save(Book.builder().title("King Arthur").author("Arthur").isbn("0008").build());
+        service.getById(book.getId());
+        Cache cache = cacheManager.getCache(CacheConfig.BOOKS);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            service.update(Book.builder().id(book.getId()).title("Other").author("Arthur").isbn("0008")
+                    .version(book.getVersion()).build());
+            assertThat(cache.get(book.getId())).isNotNull();
+        });
+
+        assertThat(cache.get(book.getId())).isNull();
+        assertThat(service.getById(book.getId())).map(Book::getTitle).contains("Other");
+    }
+
+    @Test
+    @DisplayName("should update a book without a version even when the cached copy is older than the row")
+    public void updateOverStaleCacheTest(){
+        Book book = service.save(Book.builder().title("King Arthur").author("Arthur").isbn("0009").build());
+        Book cached = service.getById(book.getId()).orElseThrow();
+        // a write that does not go through the service, as another node or a bulk import would do
+        Book row = repository.findById(book.getId()).orElseThrow();
+        row.setAuthor("Someone");
+        repository.saveAndFlush(row);
+        assertThat(service.getById(book.getId())).map(Book::getVersion).contains(cached.getVersion());
+
+        Book updated = service.update(Book.builder().id(book.getId()).title("Other").author("Arthur").isbn("0009").build());
+
+        assertThat(updated.getVersion()).isEqualTo(cached.getVersion() + 2);
+        assertThat(service.getById(book.getId())).map(Book::getTitle).contains("Other");
+    }
+
+    @Test
+    @DisplayName("should save only one book when the same ISBN is created concurrently")
+    public void concurrentSaveSameIsbnTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.save(Book.builder().title("King Arthur").author("Arthur").isbn("0002").build());
+                    saved.incrementAndGet();
+                } catch (BusinessException e) {
+                    assertThat(e).hasMessage("ISBN already in use.");
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(saved.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(THREADS - 1);
+        assertThat(repository.count()).isEqualTo(1);
+    }
+}
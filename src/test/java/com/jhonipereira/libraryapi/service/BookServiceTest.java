@@ -3,8 +3,12 @@ package com.jhonipereira.libraryapi.service;
 import com.jhonipereira.libraryapi.exception.BusinessException;
 import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.BookSummary;
 import com.jhonipereira.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,13 +17,15 @@ import org.mockito.BDDMockito;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -34,9 +40,12 @@ public class BookServiceTest {
     @MockBean
     BookRepository repository;
 
+    MeterRegistry meterRegistry;
+
     @BeforeEach
     public void setup(){
-        this.service = new BookServiceImpl(repository);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.service = new BookServiceImpl(repository, meterRegistry);
     }
 
     @Test
@@ -44,8 +53,7 @@ public class BookServiceTest {
     public void saveBooksTest(){
         //scenario
         Book book = createValidBook();
-        when(repository.existsByIsbn(Mockito.anyString()) ).thenReturn(false);
-        when(repository.save(book))
+        when(repository.saveAndFlush(book))
                 .thenReturn(
                         Book.builder()
                                 .id((long)11)
@@ -74,7 +82,7 @@ public class BookServiceTest {
     public void shouldNotSaveBookWithDuplicatedISBN(){
         //scenario
         Book book = createValidBook();
-        when(repository.existsByIsbn(Mockito.anyString()) ).thenReturn(true);
+        when(repository.saveAndFlush(book)).thenThrow(violation("PUBLIC.UK_BOOK_ISBN_INDEX_7"));
 
         //execution
         Throwable exception = Assertions.catchThrowable( () ->  service.save(book) );
@@ -83,13 +91,33 @@ public class BookServiceTest {
         assertThat(exception)
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("ISBN already in use.");
+        assertThat(meterRegistry.get("library.books.rejected").tag("reason", "duplicate-isbn").counter().count())
+                .isEqualTo(1);
 
-        //will verify to never execute the end method (save)
-        Mockito.verify(repository, Mockito.never()).save(book);
+        //will verify that no separate existence check is issued
+        Mockito.verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
 
 
     }
 
+    @Test
+    @DisplayName("should pass on integrity violations other than a duplicated ISBN")
+    public void saveOtherViolationTest(){
+        Book book = createValidBook();
+        DataIntegrityViolationException violation = violation("CONSTRAINT_1F");
+        when(repository.saveAndFlush(book)).thenThrow(violation);
+
+        Throwable exception = Assertions.catchThrowable( () ->  service.save(book) );
+
+        assertThat(exception).isSameAs(violation);
+        assertThat(meterRegistry.get("library.books.rejected").counter().count()).isZero();
+    }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException(), constraintName));
+    }
+
     @Test
     @DisplayName("should obtain a book by ID")
     public void getByIdTest(){
@@ -173,6 +201,7 @@ public class BookServiceTest {
         updated.setId(id);
 
         //
+        when(repository.findById(id)).thenReturn(Optional.of(Book.builder().id(id).version(3L).build()));
         when(repository.save(bookToUpdate)).thenReturn(updated);
 
         //execution
@@ -183,6 +212,19 @@ public class BookServiceTest {
         assertThat(book.getTitle()).isEqualTo(updated.getTitle());
         assertThat(book.getIsbn()).isEqualTo(updated.getIsbn());
         assertThat(book.getAuthor()).isEqualTo(updated.getAuthor());
+        // sent without a version: it is saved at the version the row has now
+        assertThat(bookToUpdate.getVersion()).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("should throw not found when a book updated without a version no longer exists")
+    public void updateMissingBookTest(){
+        when(repository.findById(11L)).thenReturn(Optional.empty());
+
+        Assertions.assertThatThrownBy(() -> service.update(Book.builder().id(11L).title("Title").build()))
+                .isInstanceOf(EmptyResultDataAccessException.class);
+
+        verify(repository, never()).save(any(Book.class));
     }
 
     @Test
@@ -192,13 +234,13 @@ public class BookServiceTest {
 
         PageRequest pageRequest = PageRequest.of(0, 10);
 
-        List<Book> list = Arrays.asList(book);
+        List<BookSummary> list = Arrays.asList(new BookSummary(1L, book.getTitle(), book.getAuthor(), book.getIsbn()));
 
-        Page<Book> page = new PageImpl<Book>(list, pageRequest, 1);
-        when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class)))
+        Page<BookSummary> page = new PageImpl<BookSummary>(list, pageRequest, 1);
+        when(repository.findSummaries(book.getTitle(), book.getAuthor(), book.getIsbn(), pageRequest))
                 .thenReturn(page);
 
-        Page<Book> result =  service.find(book, pageRequest);
+        Page<BookSummary> result =  service.find(book, pageRequest);
 
         assertThat(result.getTotalElements()).isEqualTo(1);
         assertThat(result.getContent()).isEqualTo(list);
@@ -0,0 +1,49 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.service.impl.EmailServiceImpl;
+import com.jhonipereira.libraryapi.service.impl.MailDispatcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class EmailServiceTest {
+    EmailService service;
+
+    @MockBean
+    MailDispatcher mailDispatcher;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new EmailServiceImpl(mailDispatcher);
+        ReflectionTestUtils.setField(service, "sender", "mail@libraryapi.com");
+    }
+
+    @Test
+    @DisplayName("should queue a single recipient message with its completion callback")
+    public void sendMailTest() throws InterruptedException {
+        Runnable onSent = () -> { };
+
+        service.sendMail("a@mail.com", "Due book loan", "due loan", onSent);
+
+        ArgumentCaptor<SimpleMailMessage> captor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailDispatcher).submit(captor.capture(), same(onSent));
+        SimpleMailMessage message = captor.getValue();
+        assertThat(message.getTo()).containsExactly("a@mail.com");
+        assertThat(message.getFrom()).isEqualTo("mail@libraryapi.com");
+        assertThat(message.getSubject()).isEqualTo("Due book loan");
+        assertThat(message.getText()).isEqualTo("due loan");
+    }
+}
@@ -0,0 +1,79 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class ExportServiceTest {
+
+    @Autowired
+    ExportService service;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @AfterEach
+    public void cleanUp(){
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should stream every book in id order across persistence context clears")
+    public void exportBooksTest(){
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            books.add(Book.builder().title("Title " + i).author("Author").isbn("isbn-" + i).build());
+        }
+        bookRepository.saveAll(books);
+
+        List<Long> exported = new ArrayList<>();
+        service.exportBooks(book -> exported.add(book.getId()));
+
+        assertThat(exported).hasSize(2500).isSorted();
+    }
+
+    @Test
+    @DisplayName("should stream loans with their books")
+    public void exportLoansTest(){
+        Book book = bookRepository.save(Book.builder().title("King Arthur").author("Arthur").isbn("0002").build());
+        loanRepository.save(Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).returned(true).build());
+        loanRepository.save(Loan.builder().book(book).customer("Mary").loanDate(LocalDate.now()).build());
+
+        List<String> exported = new ArrayList<>();
+        service.exportLoans(loan -> exported.add(loan.getCustomer() + ":" + loan.getBook().getIsbn()));
+
+        assertThat(exported).containsExactly("John:0002", "Mary:0002");
+    }
+
+    @Test
+    @DisplayName("should stream loans that have no book too")
+    public void exportLoansWithoutBookTest(){
+        Book book = bookRepository.save(Book.builder().title("King Arthur").author("Arthur").isbn("0003").build());
+        loanRepository.save(Loan.builder().book(book).customer("John").loanDate(LocalDate.now()).build());
+        loanRepository.save(Loan.builder().customer("Mary").loanDate(LocalDate.now()).build());
+
+        List<String> exported = new ArrayList<>();
+        service.exportLoans(loan -> exported.add(loan.getCustomer() + ":" + (loan.getBook() == null ? "-" : loan.getBook().getIsbn())));
+
+        assertThat(exported).containsExactly("John:0003", "Mary:-");
+    }
+}
@@ -0,0 +1,109 @@
+package com.jhonipereira.libraryapi.service;
+
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessagePreparator;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory {@link JavaMailSender} for tests and throughput benchmarks: records what was delivered,
+ * simulates the SMTP round trip of each {@code send} call and fails chosen recipients a given number of times.
+ */
+public class FakeJavaMailSender implements JavaMailSender {
+
+    private final long latencyMicros;
+    private final Queue<SimpleMailMessage> delivered = new ConcurrentLinkedQueue<>();
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger sendCalls = new AtomicInteger();
+
+    public FakeJavaMailSender() {
+        this(0);
+    }
+
+    public FakeJavaMailSender(long latencyMicros) {
+        this.latencyMicros = latencyMicros;
+    }
+
+    public void failRecipient(String recipient, int times) {
+        failures.put(recipient, new AtomicInteger(times));
+    }
+
+    public List<SimpleMailMessage> getDelivered() {
+        return new ArrayList<>(delivered);
+    }
+
+    public int getSendCalls() {
+        return sendCalls.get();
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[]{simpleMessage});
+    }
+
+    @Override
+    public void send(SimpleMailMessage... simpleMessages) throws MailException {
+        sendCalls.incrementAndGet();
+        if (latencyMicros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(latencyMicros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MailSendException("interrupted", e);
+            }
+        }
+
+        Map<Object, Exception> failed = new LinkedHashMap<>();
+        for (SimpleMailMessage message : simpleMessages) {
+            AtomicInteger remaining = failures.get(message.getTo()[0]);
+            if (remaining != null && remaining.getAndDecrement() > 0) {
+                failed.put(message, new IllegalStateException("550 mailbox unavailable"));
+            } else {
+                delivered.add(message);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new MailSendException(failed);
+        }
+    }
+
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage(Session.getInstance(new Properties()));
+    }
+
+    @Override
+    public MimeMessage createMimeMessage(InputStream contentStream) throws MailException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessage mimeMessage) throws MailException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessagePreparator mimeMessagePreparator) throws MailException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void send(MimeMessagePreparator... mimeMessagePreparators) throws MailException {
+        throw new UnsupportedOperationException();
+    }
+}
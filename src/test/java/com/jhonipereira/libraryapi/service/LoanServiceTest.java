@@ -6,12 +6,17 @@ import com.jhonipereira.libraryapi.model.entity.Book;
 import com.jhonipereira.libraryapi.model.entity.Loan;
 import com.jhonipereira.libraryapi.model.repository.LoanRepository;
 import com.jhonipereira.libraryapi.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -19,6 +24,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +32,9 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -36,9 +45,15 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    OutboxService outboxService;
+
+    MeterRegistry meterRegistry;
+
     @BeforeEach
     public void setUp(){
-        this.service = new LoanServiceImpl(repository);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.service = new LoanServiceImpl(repository, outboxService, meterRegistry);
     }
 
     @Test
@@ -53,8 +68,7 @@ public class LoanServiceTest {
 
         Loan savedLoan = Loan.builder().id(11L).book(book).customer("John").loanDate(LocalDate.now()).build();
 
-        when(repository.existsByBookAndNotReturned(book.getId())).thenReturn(false); //just to make sure
-        when(repository.save(savingLoan)).thenReturn(savedLoan);
+        when(repository.saveAndFlush(savingLoan)).thenReturn(savedLoan);
 
         Loan loan = service.save(savingLoan);
 
@@ -62,6 +76,22 @@ public class LoanServiceTest {
         assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+        assertThat(meterRegistry.get("library.loans.created").counter().count()).isEqualTo(1);
+        verify(outboxService, never()).enqueue(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("should write the loan notification to the outbox when the customer has an email")
+    public void saveLoanNotificationTest(){
+        Book book = Book.builder().id(11L).build();
+        Loan savingLoan = Loan.builder().book(book).customer("John").customerEmail("john@mail.com").loanDate(LocalDate.now()).build();
+        Loan savedLoan = Loan.builder().id(11L).book(book).customer("John").customerEmail("john@mail.com").loanDate(LocalDate.now()).build();
+
+        when(repository.saveAndFlush(savingLoan)).thenReturn(savedLoan);
+
+        service.save(savingLoan);
+
+        verify(outboxService).enqueue(eq("loan-created:11"), eq("john@mail.com"), anyString(), anyString());
     }
 
     @Test
@@ -74,14 +104,39 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        when(repository.existsByBookAndNotReturned(book.getId())).thenReturn(true);
+        when(repository.saveAndFlush(savingLoan)).thenThrow(violation("PUBLIC.UK_LOAN_OPEN_BOOK_INDEX_2"));
 
         Throwable exception = catchThrowable(() -> service.save(savingLoan));
 
         assertThat(exception).isInstanceOf(BusinessException.class)
                 .hasMessage("book already loaned");
 
-        verify(repository, never()).save(savingLoan);
+        assertThat(meterRegistry.get("library.loans.rejected").tag("reason", "already-loaned").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.loans.created").counter().count()).isZero();
+        verify(repository, never()).existsByBookAndNotReturned(book.getId());
+    }
+
+    @Test
+    @DisplayName("should pass on a loan of a deleted book instead of reporting it as loaned")
+    public void saveLoanDeletedBookTest(){
+        Loan savingLoan = Loan.builder().book(Book.builder().id(11L).build()).customer("John").loanDate(LocalDate.now()).build();
+        DataIntegrityViolationException violation = violation("FK_LOAN_BOOK");
+        when(repository.saveAndFlush(savingLoan)).thenThrow(violation);
+
+        Throwable exception = catchThrowable(() -> service.save(savingLoan));
+
+        assertThat(exception).isSameAs(violation);
+        assertThat(meterRegistry.get("library.loans.rejected").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("should report a reopened loan of a book on loan as already loaned")
+    public void markReturnedFalseLoanedBookTest(){
+        when(repository.updateReturned(1L, false, null)).thenThrow(violation("uk_loan_open_book"));
+
+        Throwable exception = catchThrowable(() -> service.markReturned(1L, false, null));
+
+        assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("book already loaned");
     }
 
     @Test
@@ -115,6 +170,8 @@ public class LoanServiceTest {
         //scenario
         Long id = 1L;
         Loan loan = createLoan();
+        loan.setId(id);
+        loan.setCustomerEmail("john@mail.com");
         loan.setReturned(true);
 
         when(repository.save(loan)).thenReturn(loan);
@@ -123,6 +180,43 @@ public class LoanServiceTest {
 
         assertThat(updatedLoan.getReturned()).isTrue();
         verify(repository).save(loan);
+        verify(outboxService).enqueue(eq("loan-returned:1"), eq("john@mail.com"), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("should return a loan with a conditional update and queue the notice")
+    public void markReturnedTest(){
+        when(repository.updateReturned(1L, true, 2L)).thenReturn(1);
+
+        boolean returned = service.markReturned(1L, true, 2L);
+
+        assertThat(returned).isTrue();
+        assertThat(meterRegistry.get("library.loans.returned").counter().count()).isEqualTo(1);
+        verify(repository, never()).findById(anyLong());
+        verify(outboxService).enqueueForLoan(eq("loan-returned:1"), eq(1L), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("should fail the return when the loan changed since the expected version")
+    public void markReturnedStaleVersionTest(){
+        when(repository.updateReturned(1L, true, 2L)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+
+        Throwable exception = catchThrowable(() -> service.markReturned(1L, true, 2L));
+
+        assertThat(exception).isInstanceOf(OptimisticLockingFailureException.class);
+        verify(outboxService, never()).enqueueForLoan(anyString(), anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("should not return a loan that does not exist")
+    public void markReturnedNonexistentLoanTest(){
+        when(repository.updateReturned(1L, true, null)).thenReturn(0);
+
+        boolean returned = service.markReturned(1L, true, null);
+
+        assertThat(returned).isFalse();
+        verify(outboxService, never()).enqueueForLoan(anyString(), anyLong(), anyString(), anyString());
     }
 
     @Test
@@ -160,4 +254,9 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
     }
+
+    private static DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", new SQLException(), constraintName));
+    }
 }
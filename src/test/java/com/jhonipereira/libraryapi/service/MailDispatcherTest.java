@@ -0,0 +1,139 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.service.impl.MailDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class MailDispatcherTest {
+
+    FakeJavaMailSender mailSender = new FakeJavaMailSender();
+
+    MailDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("should send every queued message in batches of the configured size")
+    public void sendInBatchesTest() throws InterruptedException {
+        dispatcher = start(1, 10, 10_000, 3);
+
+        for (int i = 0; i < 25; i++) {
+            dispatcher.submit(message("customer" + i + "@mail.com"));
+        }
+        dispatcher.shutdown();
+
+        assertThat(mailSender.getDelivered()).hasSize(25);
+        assertThat(mailSender.getSendCalls()).isBetween(3, 25);
+        assertThat(dispatcher.sentCount()).isEqualTo(25);
+        assertThat(dispatcher.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("should run the completion callback only for messages the server accepted")
+    public void completionCallbackTest() throws InterruptedException {
+        mailSender.failRecipient("b@mail.com", 5);
+        dispatcher = start(1, 10, 10_000, 2);
+        AtomicInteger completed = new AtomicInteger();
+
+        dispatcher.submit(message("a@mail.com"), completed::incrementAndGet);
+        dispatcher.submit(message("b@mail.com"), completed::incrementAndGet);
+        dispatcher.shutdown();
+
+        assertThat(completed).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("should retry only the failed recipients of a batch")
+    public void retryFailedRecipientsTest() throws InterruptedException {
+        mailSender.failRecipient("b@mail.com", 2);
+        dispatcher = start(1, 10, 10_000, 3);
+
+        dispatcher.submit(message("a@mail.com"));
+        dispatcher.submit(message("b@mail.com"));
+        dispatcher.shutdown();
+
+        assertThat(mailSender.getDelivered()).extracting(m -> m.getTo()[0])
+                .containsExactlyInAnyOrder("a@mail.com", "b@mail.com");
+        assertThat(dispatcher.sentCount()).isEqualTo(2);
+        assertThat(dispatcher.failedCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("should give up on a recipient after the maximum number of attempts")
+    public void giveUpAfterMaxAttemptsTest() throws InterruptedException {
+        mailSender.failRecipient("b@mail.com", 5);
+        dispatcher = start(1, 10, 10_000, 3);
+
+        dispatcher.submit(message("a@mail.com"));
+        dispatcher.submit(message("b@mail.com"));
+        dispatcher.shutdown();
+
+        assertThat(mailSender.getDelivered()).extracting(m -> m.getTo()[0]).containsExactly("a@mail.com");
+        assertThat(dispatcher.failedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should count the sent and failed mails and time each send on the bound registry")
+    public void metricsTest() throws InterruptedException {
+        mailSender.failRecipient("b@mail.com", 5);
+        dispatcher = start(1, 10, 10_000, 2);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dispatcher.bindTo(meterRegistry);
+
+        dispatcher.submit(message("a@mail.com"));
+        dispatcher.submit(message("b@mail.com"));
+        dispatcher.shutdown();
+
+        assertThat(meterRegistry.get("library.mail.sent").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.mail.failed").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.mail.send").timer().count()).isGreaterThanOrEqualTo(2);
+        assertThat(meterRegistry.get("library.mail.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not send faster than the configured rate")
+    public void rateLimitTest() throws InterruptedException {
+        dispatcher = start(2, 1, 20, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 40; i++) {
+            dispatcher.submit(message("customer" + i + "@mail.com"));
+        }
+        dispatcher.shutdown();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(mailSender.getDelivered()).hasSize(40);
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(900);
+    }
+
+    private MailDispatcher start(int workers, int batchSize, double ratePerSecond, int maxAttempts) {
+        MailDispatcher dispatcher = new MailDispatcher(mailSender, 100, workers, batchSize, ratePerSecond, maxAttempts, 1);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setText("due loan");
+        return message;
+    }
+}
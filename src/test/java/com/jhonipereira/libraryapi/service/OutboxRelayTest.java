@@ -0,0 +1,150 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+public class OutboxRelayTest {
+
+    @Autowired
+    OutboxRelay relay;
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Autowired
+    MailOutboxRepository repository;
+
+    @MockBean
+    EmailService emailService;
+
+    @AfterEach
+    public void cleanUp(){
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("should write a mail once per idempotency key")
+    public void enqueueIdempotentTest(){
+        assertThat(outboxService.enqueue("loan-created:1", "john@mail.com", "Book loan", "hi")).isTrue();
+        assertThat(outboxService.enqueue("loan-created:1", "john@mail.com", "Book loan", "hi")).isFalse();
+
+        int written = outboxService.enqueueAll(Arrays.asList(mail("loan-created:1"), mail("loan-created:2")));
+
+        assertThat(written).isEqualTo(1);
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should submit pending mails once and mark them sent when the server accepts them")
+    public void relayMarksSentTest(){
+        outboxService.enqueueAll(Arrays.asList(mail("a"), mail("b")));
+
+        assertThat(relay.relay()).isEqualTo(2);
+        assertThat(relay.relay()).isZero();
+
+        ArgumentCaptor<Runnable> onSent = ArgumentCaptor.forClass(Runnable.class);
+        verify(emailService, times(2)).sendMail(eq("john@mail.com"), eq("Book loan"), eq("due"), onSent.capture());
+        onSent.getAllValues().forEach(Runnable::run);
+
+        assertThat(repository.findAll()).allSatisfy(mail -> {
+            assertThat(mail.getSentAt()).isNotNull();
+            assertThat(mail.getAttempts()).isEqualTo(1);
+        });
+        assertThat(relay.relay()).isZero();
+        verifyNoMoreInteractions(emailService);
+    }
+
+    @Test
+    @DisplayName("should send a mail again once its lease runs out without being marked sent")
+    public void relayRetriesExpiredLeaseTest(){
+        outboxService.enqueueAll(Arrays.asList(mail("a")));
+        assertThat(relay.relay()).isEqualTo(1);
+
+        MailOutbox leased = repository.findAll().get(0);
+        leased.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        repository.save(leased);
+
+        assertThat(relay.relay()).isEqualTo(1);
+        verify(emailService, times(2)).sendMail(any(), any(), any(), any());
+        assertThat(repository.findAll().get(0).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should retry a failed mail once its lease runs out while new mails keep arriving")
+    public void relayRetriesFailedMailUnderLoadTest(){
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        doAnswer(invocation -> {
+            if (!"fail@mail.com".equals(invocation.getArgument(0))) {
+                invocation.<Runnable>getArgument(3).run();
+            }
+            return null;
+        }).when(emailService).sendMail(any(), any(), any(), any());
+
+        outboxService.enqueue("failing", "fail@mail.com", "Book loan", "due");
+        MailOutbox failing = repository.findAll().get(0);
+        for (int poll = 0; poll < 5; poll++) {
+            outboxService.enqueueAll(Arrays.asList(mail("poll-" + poll + "-a"), mail("poll-" + poll + "-b")));
+            assertThat(relay.relay()).isEqualTo(2);
+            if (poll == 1) {
+                MailOutbox leased = repository.findById(failing.getId()).orElseThrow();
+                leased.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+                repository.save(leased);
+            }
+        }
+
+        verify(emailService, times(2)).sendMail(eq("fail@mail.com"), any(), any(), any());
+        assertThat(repository.findById(failing.getId()).orElseThrow().getAttempts()).isEqualTo(2);
+        assertThat(repository.findAll()).filteredOn(mail -> mail.getSentAt() == null)
+                .extracting(MailOutbox::getIdempotencyKey).contains("failing");
+    }
+
+    @Test
+    @DisplayName("should mark failed the mails out of attempts and keep relaying the new ones past them")
+    public void relaySkipsFailedMailsTest(){
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        LocalDateTime expired = LocalDateTime.now().minusSeconds(1);
+        repository.saveAll(Arrays.asList(
+                dead("dead-1", expired), dead("dead-2", expired), dead("dead-3", expired),
+                dead("leased", LocalDateTime.now().plusMinutes(5))));
+        outboxService.enqueueAll(Arrays.asList(mail("new-a"), mail("new-b")));
+
+        assertThat(relay.relay()).isEqualTo(2);
+        verify(emailService, times(2)).sendMail(any(), any(), any(), any());
+
+        assertThat(repository.findAll()).filteredOn(mail -> mail.getFailedAt() != null)
+                .extracting(MailOutbox::getIdempotencyKey).containsExactlyInAnyOrder("dead-1", "dead-2", "dead-3");
+        assertThat(repository.findPending(LocalDateTime.now(), 5, PageRequest.of(0, 10)))
+                .extracting(MailOutbox::getIdempotencyKey).isEmpty();
+        assertThat(repository.markFailed(LocalDateTime.now(), 5)).isZero();
+    }
+
+    private static MailOutbox dead(String key, LocalDateTime nextAttemptAt){
+        return MailOutbox.builder().idempotencyKey(key).recipient("john@mail.com").subject("Book loan").body("due")
+                .attempts(5).nextAttemptAt(nextAttemptAt).build();
+    }
+
+    private static MailOutbox mail(String key){
+        return MailOutbox.builder().idempotencyKey(key).recipient("john@mail.com").subject("Book loan").body("due").build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.LibraryApiApplication;
+import com.jhonipereira.libraryapi.model.entity.Book;
+import com.jhonipereira.libraryapi.model.entity.Loan;
+import com.jhonipereira.libraryapi.model.repository.BookRepository;
+import com.jhonipereira.libraryapi.model.repository.LoanRepository;
+import com.jhonipereira.libraryapi.model.repository.MailOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots two application contexts against the same embedded H2 database, standing in for two nodes of a cluster.
+ */
+public class ScheduleServiceClusterTest {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    public void stopNodes(){
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("should run the due loan job on a single node when both fire together")
+    public void singleNodeRunsTheJobTest() throws Exception {
+        ConfigurableApplicationContext first = node("single", 1);
+        ConfigurableApplicationContext second = node("single", 1);
+        createDueLoans(first, 10);
+
+        List<DueLoanReport> reports = runTogether(first, second);
+
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0).getProcessed()).isEqualTo(10);
+        assertThat(first.getBean(MailOutboxRepository.class).count()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("should split the due loan job into shards run once each across the nodes")
+    public void shardedJobTest() throws Exception {
+        ConfigurableApplicationContext first = node("sharded", 4);
+        ConfigurableApplicationContext second = node("sharded", 4);
+        createDueLoans(first, 20);
+
+        List<DueLoanReport> reports = runTogether(first, second);
+
+        assertThat(reports).extracting(DueLoanReport::getShard).containsExactlyInAnyOrder(0, 1, 2, 3);
+        assertThat(reports.stream().mapToLong(DueLoanReport::getProcessed).sum()).isEqualTo(20);
+        assertThat(first.getBean(MailOutboxRepository.class).count()).isEqualTo(20);
+    }
+
+    private ConfigurableApplicationContext node(String database, int shards){
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--application.jobs.due-loans.shards=" + shards,
+                        "--application.mail.outbox.poll-delay-millis=3600000");
+        nodes.add(context);
+        return context;
+    }
+
+    private static void createDueLoans(ConfigurableApplicationContext context, int count){
+        BookRepository books = context.getBean(BookRepository.class);
+        LoanRepository loans = context.getBean(LoanRepository.class);
+        for (int i = 0; i < count; i++) {
+            Book book = books.save(Book.builder().title("Title " + i).author("Author").isbn("isbn-" + i).build());
+            loans.save(Loan.builder().book(book).customer("Customer " + i).customerEmail("customer" + i + "@mail.com").loanDate(LocalDate.now().minusDays(5)).build());
+        }
+    }
+
+    private static List<DueLoanReport> runTogether(ConfigurableApplicationContext... contexts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(contexts.length);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<DueLoanReport>>> runs = new ArrayList<>();
+            for (ConfigurableApplicationContext context : contexts) {
+                ScheduleService service = context.getBean(ScheduleService.class);
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    return service.runDueLoanJob();
+                }));
+            }
+            start.countDown();
+
+            List<DueLoanReport> reports = new ArrayList<>();
+            for (Future<List<DueLoanReport>> run : runs) {
+                reports.addAll(run.get(30, TimeUnit.SECONDS));
+            }
+            return reports;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.jhonipereira.libraryapi.service;
+
+import com.jhonipereira.libraryapi.model.entity.JobLock;
+import com.jhonipereira.libraryapi.model.entity.MailOutbox;
+import com.jhonipereira.libraryapi.model.repository.DueLoan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest {
+    ScheduleService service;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    JobLockService jobLockService;
+
+    @BeforeEach
+    public void setUp(){
+        this.service = new ScheduleService(loanService, outboxService, jobLockService);
+        ReflectionTestUtils.setField(service, "message", "due loan");
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+    }
+
+    @Test
+    @DisplayName("should write due loan mails to the outbox chunk by chunk seeking after the last id")
+    @SuppressWarnings("unchecked")
+    public void notifyDueLoansInChunksTest(){
+        when(loanService.getDueLoans(0L, 2, 0, 1)).thenReturn(Arrays.asList(dueLoan(1L, "Ana", "a@mail.com"), dueLoan(3L, "Bia", "b@mail.com")));
+        when(loanService.getDueLoans(3L, 2, 0, 1)).thenReturn(Collections.singletonList(dueLoan(7L, "Caio", "c@mail.com")));
+        when(outboxService.enqueueAll(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        DueLoanReport report = service.notifyDueLoans(0, 1);
+
+        ArgumentCaptor<List<MailOutbox>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxService, times(2)).enqueueAll(captor.capture());
+        String today = LocalDate.now().toString();
+        assertThat(captor.getAllValues().get(0)).extracting(MailOutbox::getIdempotencyKey, MailOutbox::getRecipient)
+                .containsExactly(tuple("due-loan:1:" + today, "a@mail.com"),
+                        tuple("due-loan:3:" + today, "b@mail.com"));
+        assertThat(captor.getAllValues().get(1)).extracting(MailOutbox::getRecipient, MailOutbox::getBody)
+                .containsExactly(tuple("c@mail.com", "due loan"));
+        verify(loanService, never()).getDueLoans(7L, 2, 0, 1);
+        assertThat(report.getProcessed()).isEqualTo(3);
+        assertThat(report.getQueued()).isEqualTo(3);
+        assertThat(report.getChunks()).isEqualTo(2);
+        assertThat(report.getDuration()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should mail the customer's email and skip due loans without one")
+    @SuppressWarnings("unchecked")
+    public void notifyDueLoansWithoutEmailTest(){
+        when(loanService.getDueLoans(0L, 2, 0, 1)).thenReturn(Arrays.asList(dueLoan(1L, "Ana", null), dueLoan(3L, "Bia", "b@mail.com")));
+        when(loanService.getDueLoans(3L, 2, 0, 1)).thenReturn(Collections.emptyList());
+        when(outboxService.enqueueAll(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        DueLoanReport report = service.notifyDueLoans(0, 1);
+
+        ArgumentCaptor<List<MailOutbox>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxService).enqueueAll(captor.capture());
+        assertThat(captor.getValue()).extracting(MailOutbox::getRecipient).containsExactly("b@mail.com");
+        assertThat(report.getProcessed()).isEqualTo(2);
+        assertThat(report.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not write to the outbox when there are no due loans")
+    public void notifyWithoutDueLoansTest(){
+        when(loanService.getDueLoans(0L, 2, 0, 1)).thenReturn(Collections.emptyList());
+
+        DueLoanReport report = service.notifyDueLoans(0, 1);
+
+        verify(outboxService, never()).enqueueAll(anyList());
+        assertThat(report.getProcessed()).isZero();
+        assertThat(report.getChunks()).isZero();
+    }
+
+    @Test
+    @DisplayName("should skip the job when another node holds its lock")
+    public void runDueLoanJobLockedTest(){
+        when(jobLockService.tryLock(eq("due-loan-notification"), any())).thenReturn(Optional.empty());
+
+        List<DueLoanReport> reports = service.runDueLoanJob();
+
+        assertThat(reports).isEmpty();
+        verifyNoInteractions(loanService, outboxService);
+    }
+
+    @Test
+    @DisplayName("should run only the shards this node could lock and release them afterwards")
+    public void runDueLoanJobShardsTest(){
+        ReflectionTestUtils.setField(service, "shards", 3);
+        JobLock lock = JobLock.builder().name("due-loan-notification:1/3").build();
+        when(jobLockService.tryLock(anyString(), any())).thenReturn(Optional.empty());
+        when(jobLockService.tryLock(eq("due-loan-notification:1/3"), any())).thenReturn(Optional.of(lock));
+        when(loanService.getDueLoans(0L, 2, 1, 3)).thenReturn(Collections.emptyList());
+
+        List<DueLoanReport> reports = service.runDueLoanJob();
+
+        assertThat(reports).extracting(DueLoanReport::getShard).containsExactly(1);
+        verify(loanService).getDueLoans(0L, 2, 1, 3);
+        verify(jobLockService).unlock(eq(lock), any());
+        verify(jobLockService, times(3)).tryLock(anyString(), any());
+    }
+
+    private static DueLoan dueLoan(Long id, String customer, String customerEmail){
+        return new DueLoan() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCustomer() {
+                return customer;
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return customerEmail;
+            }
+        };
+    }
+}